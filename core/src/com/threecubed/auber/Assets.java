@@ -0,0 +1,80 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.utils.Disposable;
+
+
+/**
+ * Owns every asset the game loads from disk, through a libGDX {@link AssetManager}. Assets are
+ * queued up front and loaded a little at a time by {@link Assets#update()}, so a screen can show
+ * progress while they load. The manager counts references, so an asset is only loaded once
+ * however many screens ask for it, and is only freed once nothing uses it.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class Assets implements Disposable {
+  public static final String ATLAS = "auber.atlas";
+  public static final String MAP = "map.tmx";
+
+  private final AssetManager manager = new AssetManager();
+  private RegionCache regions;
+
+  /**
+   * Queue every asset the game needs to be loaded. Nothing is loaded until
+   * {@link Assets#update()} is called.
+   * */
+  public Assets() {
+    manager.setLoader(TiledMap.class, new TmxMapLoader(new InternalFileHandleResolver()));
+    manager.load(ATLAS, TextureAtlas.class);
+    manager.load(MAP, TiledMap.class);
+  }
+
+  /**
+   * Continue loading the queued assets, for a short while at most.
+   *
+   * @return True once every asset has been loaded
+   * */
+  public boolean update() {
+    return manager.update(17);
+  }
+
+  /**
+   * Get how much of the queued assets have loaded.
+   *
+   * @return The progress, from 0 to 1
+   * */
+  public float getProgress() {
+    return manager.getProgress();
+  }
+
+  public TextureAtlas getAtlas() {
+    return manager.get(ATLAS, TextureAtlas.class);
+  }
+
+  public TiledMap getMap() {
+    return manager.get(MAP, TiledMap.class);
+  }
+
+  /**
+   * Get the regions of the atlas, indexed by name.
+   *
+   * @return The region cache, built the first time it is asked for
+   * */
+  public RegionCache getRegions() {
+    if (regions == null) {
+      regions = new RegionCache(getAtlas());
+    }
+    return regions;
+  }
+
+  @Override
+  public void dispose() {
+    manager.dispose();
+  }
+}
@@ -2,21 +2,69 @@ package com.threecubed.auber;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.threecubed.auber.screens.MenuScreen;
+import com.threecubed.auber.entities.NpcUpdater;
+import com.threecubed.auber.screens.GameScreen;
+import com.threecubed.auber.screens.LoadingScreen;
 
 public class AuberGame extends Game {
+  public Assets assets;
+  /** The game's atlas, available once the {@link LoadingScreen} has finished. */
   public TextureAtlas atlas;
+  /** A batch for screens that are rebuilt each time they are shown, such as the menu. */
+  public SpriteBatch batch;
+  /** The screen of the last game played, kept so the next game can reuse it. */
+  private GameScreen gameScreen;
 
   @Override
   public void create() {
-    atlas = new TextureAtlas("auber.atlas");
+    assets = new Assets();
     Gdx.graphics.setWindowedMode(1920, 1080);
-    setScreen(new MenuScreen(this));
+    batch = new SpriteBatch();
+    setScreen(new LoadingScreen(this));
+  }
+
+  /**
+   * Start a new game, restarting the last game's screen if it was in the same mode rather than
+   * building a new world and renderers.
+   *
+   * @param demoMode Whether the game should run in demo mode
+   * @param difficulty The difficulty of the game
+   * */
+  public void startGame(boolean demoMode, World.Difficulty difficulty) {
+    if (gameScreen != null && gameScreen.world.demoMode == demoMode) {
+      gameScreen.restart(difficulty);
+    } else {
+      replaceGameScreen(new GameScreen(this, demoMode, false, difficulty));
+    }
+    setScreen(gameScreen);
+  }
+
+  /**
+   * Continue the game from the save file, which always needs a new screen as the saved entities
+   * are added as the world is built.
+   * */
+  public void loadGame() {
+    replaceGameScreen(new GameScreen(this, false, true, World.Difficulty.HARD));
+    setScreen(gameScreen);
+  }
+
+  private void replaceGameScreen(GameScreen screen) {
+    if (gameScreen != null) {
+      gameScreen.dispose();
+    }
+    gameScreen = screen;
   }
 
   @Override
   public void dispose() {
-    atlas.dispose();
+    if (gameScreen != null) {
+      gameScreen.dispose();
+    }
+    // The atlas and map belong to the asset manager
+    assets.dispose();
+    batch.dispose();
+    NpcUpdater.shutdown();
   }
 }
@@ -0,0 +1,144 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An index over the interactable objects of a map, such as systems and teleporters, built once
+ * when a world is loaded. Objects are bucketed into a grid by the area they cover, so finding
+ * the object an entity is standing on only tests the objects near it. Teleporters are linked to
+ * their destinations by the map's {@link MapBundle}, rather than looking the destination up by
+ * name on every use.
+ *
+ * <p>Objects never move during a game, so the index is never rebuilt.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class InteractionIndex {
+  /** The width and height of each cell, in world units. */
+  public static final float CELL_SIZE = 32f;
+
+  private final int columns;
+  private final int rows;
+  /** Every rectangular object, in the order they appear in the layer. */
+  private final RectangleMapObject[] objects;
+  /** The position in {@link InteractionIndex#cellObjects} each cell's objects start at. */
+  private final int[] cellStarts;
+  /** The index of every object overlapping each cell, grouped by cell in ascending order. */
+  private final int[] cellObjects;
+  private final Map<RectangleMapObject, RectangleMapObject> teleporterLinks = new HashMap<>();
+
+  /**
+   * Index the rectangular objects of a layer.
+   *
+   * @param objectLayer The layer containing the interactable objects
+   * @param width The width of the world, in world units
+   * @param height The height of the world, in world units
+   * @param bundle The bundle of the map the layer belongs to, which links the teleporters
+   * */
+  public InteractionIndex(MapLayer objectLayer, float width, float height, MapBundle bundle) {
+    columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+    rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+
+    // Index loops rather than iterators, the layer may be shared with other worlds' threads
+    MapObjects layerObjects = objectLayer.getObjects();
+    List<RectangleMapObject> rectangles = new ArrayList<>();
+    for (int i = 0; i < layerObjects.getCount(); i++) {
+      MapObject object = layerObjects.get(i);
+      if (object instanceof RectangleMapObject) {
+        rectangles.add((RectangleMapObject) object);
+      }
+    }
+    objects = rectangles.toArray(new RectangleMapObject[rectangles.size()]);
+
+    // Count the objects in each cell, then fill them in, so that each cell's objects are stored
+    // next to each other
+    cellStarts = new int[columns * rows + 1];
+    for (RectangleMapObject object : objects) {
+      Rectangle rectangle = object.getRectangle();
+      for (int row = getRow(rectangle.y); row <= getRow(rectangle.y + rectangle.height); row++) {
+        for (int column = getColumn(rectangle.x);
+            column <= getColumn(rectangle.x + rectangle.width); column++) {
+          cellStarts[row * columns + column + 1]++;
+        }
+      }
+    }
+    for (int i = 1; i < cellStarts.length; i++) {
+      cellStarts[i] += cellStarts[i - 1];
+    }
+    cellObjects = new int[cellStarts[cellStarts.length - 1]];
+    int[] cellFill = new int[columns * rows];
+    for (int i = 0; i < objects.length; i++) {
+      Rectangle rectangle = objects[i].getRectangle();
+      for (int row = getRow(rectangle.y); row <= getRow(rectangle.y + rectangle.height); row++) {
+        for (int column = getColumn(rectangle.x);
+            column <= getColumn(rectangle.x + rectangle.width); column++) {
+          int cell = row * columns + column;
+          cellObjects[cellStarts[cell] + cellFill[cell]++] = i;
+        }
+      }
+    }
+
+    for (int i = 0; i < bundle.teleporterObjects.length; i++) {
+      teleporterLinks.put((RectangleMapObject) layerObjects.get(bundle.teleporterObjects[i]),
+          (RectangleMapObject) layerObjects.get(bundle.teleporterLinks[i]));
+    }
+  }
+
+  /**
+   * Find the first object, in layer order, that overlaps an area.
+   *
+   * @param bounds The area to test
+   * @return The first overlapping object, or null if there are none
+   * */
+  public RectangleMapObject findOverlapping(Rectangle bounds) {
+    int firstIndex = objects.length;
+    for (int row = getRow(bounds.y); row <= getRow(bounds.y + bounds.height); row++) {
+      for (int column = getColumn(bounds.x);
+          column <= getColumn(bounds.x + bounds.width); column++) {
+        int cell = row * columns + column;
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+          int index = cellObjects[i];
+          // Objects are in ascending order within each cell, so the rest come later
+          if (index >= firstIndex) {
+            break;
+          }
+          if (Intersector.overlaps(bounds, objects[index].getRectangle())) {
+            firstIndex = index;
+            break;
+          }
+        }
+      }
+    }
+    return firstIndex < objects.length ? objects[firstIndex] : null;
+  }
+
+  /**
+   * Get the teleporter a teleporter sends entities to.
+   *
+   * @param teleporter The teleporter being used
+   * @return The linked teleporter, or null if it isn't linked to one
+   * */
+  public RectangleMapObject getLinkedTeleporter(RectangleMapObject teleporter) {
+    return teleporterLinks.get(teleporter);
+  }
+
+  private int getColumn(float x) {
+    return Math.min(columns - 1, Math.max(0, (int) (x / CELL_SIZE)));
+  }
+
+  private int getRow(float y) {
+    return Math.min(rows - 1, Math.max(0, (int) (y / CELL_SIZE)));
+  }
+}
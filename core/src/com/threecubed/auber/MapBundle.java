@@ -0,0 +1,376 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.World.SystemStates;
+import com.threecubed.auber.World.Tiles;
+import com.threecubed.auber.pathfinding.VisibilityTable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Everything a world needs to know about its map that isn't drawn: which tiles can be walked on
+ * and which block sight, which tiles can see each other, where entities spawn and flee to, and
+ * where the systems, medbay and teleporters are. It is compiled from a TMX map once, at build
+ * time, and written to a compact binary file, so a game can load it with a single memory-mapped
+ * read instead of scanning the map's layers and objects every time a world is created.
+ *
+ * <p>Objects are referred to by their index in the map's object layer, so a bundle can only be
+ * used with the map it was compiled from. Tiles are referred to by {@code y * width + x}.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class MapBundle {
+  /** The file the bundle for the game's map is stored in, generated by the build. */
+  public static final String FILE = "map.bundle";
+  /** The first bytes of every bundle, "AUBM". */
+  private static final int MAGIC = 0x4155424d;
+  /** The version of the file format, changed whenever the format is. */
+  private static final int VERSION = 2;
+
+  public final int width;
+  public final int height;
+  public final int tileWidth;
+  public final int tileHeight;
+  /** The number of objects in the object layer the bundle was compiled from. */
+  public final int objectCount;
+  /** Whether each tile is on the navigation layer. */
+  public final boolean[] navigable;
+  /** Whether each tile is on the collision layer. */
+  public final boolean[] blocked;
+  /** The tiles entities can spawn on, every navigable tile in row order. */
+  public final int[] spawnTiles;
+  /** The tiles fleeing NPCs can run to, in row order. */
+  public final int[] fleeTiles;
+  /** The object index of the medbay, or -1 if there is none. */
+  public final int medbayObject;
+  /** The object index of each system, in the order they appear in the object layer. */
+  public final int[] systemObjects;
+  /** The coordinates of each system's tile, which is a tile above its object. */
+  public final int[] systemTileX;
+  public final int[] systemTileY;
+  /** Whether each system stands on its own, with a light above it, rather than in a wall. */
+  public final boolean[] systemStandalone;
+  /** The state each system starts in. */
+  public final SystemStates[] systemStates;
+  /** The object index of each teleporter that is linked to another. */
+  public final int[] teleporterObjects;
+  /** The object index of the teleporter each teleporter sends entities to. */
+  public final int[] teleporterLinks;
+  /** Which tiles can see each other, built from {@link MapBundle#blocked}. */
+  public final VisibilityTable visibility;
+
+  private MapBundle(int width, int height, int tileWidth, int tileHeight, int objectCount,
+      boolean[] navigable, boolean[] blocked, int[] spawnTiles, int[] fleeTiles,
+      int medbayObject, int[] systemObjects, int[] systemTileX, int[] systemTileY,
+      boolean[] systemStandalone, SystemStates[] systemStates, int[] teleporterObjects,
+      int[] teleporterLinks, VisibilityTable visibility) {
+    this.width = width;
+    this.height = height;
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+    this.objectCount = objectCount;
+    this.navigable = navigable;
+    this.blocked = blocked;
+    this.spawnTiles = spawnTiles;
+    this.fleeTiles = fleeTiles;
+    this.medbayObject = medbayObject;
+    this.systemObjects = systemObjects;
+    this.systemTileX = systemTileX;
+    this.systemTileY = systemTileY;
+    this.systemStandalone = systemStandalone;
+    this.systemStates = systemStates;
+    this.teleporterObjects = teleporterObjects;
+    this.teleporterLinks = teleporterLinks;
+    this.visibility = visibility;
+  }
+
+  /**
+   * Get how far the visibility table of a map should reach, far enough to cover an
+   * infiltrator's sight.
+   *
+   * @param tileWidth The width of the map's tiles
+   * @return The range of the table, in tiles along each axis
+   * */
+  private static int getVisibilityRange(int tileWidth) {
+    return (int) Math.ceil(World.INFILTRATOR_SIGHT_RANGE / tileWidth);
+  }
+
+  /**
+   * Compile a bundle by scanning the layers and objects of a map.
+   *
+   * @param map The map to compile
+   * @return The map's bundle
+   * @throws IllegalArgumentException if a system object has no system tile above it
+   * */
+  public static MapBundle compile(TiledMap map) {
+    TiledMapTileLayer navigationLayer = (TiledMapTileLayer) map.getLayers()
+        .get("navigation_layer");
+    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) map.getLayers().get("collision_layer");
+    int width = navigationLayer.getWidth();
+    int height = navigationLayer.getHeight();
+    int tileWidth = navigationLayer.getTileWidth();
+    int tileHeight = navigationLayer.getTileHeight();
+
+    boolean[] navigable = new boolean[width * height];
+    boolean[] blocked = new boolean[width * height];
+    IntArray spawnTiles = new IntArray();
+    IntArray fleeTiles = new IntArray();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        Cell cell = navigationLayer.getCell(x, y);
+        if (cell != null) {
+          navigable[y * width + x] = true;
+          spawnTiles.add(y * width + x);
+          if (cell.getTile().getId() == Tiles.FLEE_POINT.tileId) {
+            fleeTiles.add(y * width + x);
+          }
+        }
+        blocked[y * width + x] = collisionLayer.getCell(x, y) != null;
+      }
+    }
+
+    // Index loops rather than iterators, the layer may be shared with other worlds' threads
+    MapObjects objects = map.getLayers().get("object_layer").getObjects();
+    int medbayObject = -1;
+    IntArray systemObjects = new IntArray();
+    Map<String, Integer> objectsByName = new HashMap<>();
+    for (int i = 0; i < objects.getCount(); i++) {
+      MapObject object = objects.get(i);
+      if (!(object instanceof RectangleMapObject)) {
+        continue;
+      }
+      String type = object.getProperties().get("type", String.class);
+      if ("system".equals(type)) {
+        systemObjects.add(i);
+      } else if ("medbay".equals(type)) {
+        medbayObject = i;
+      }
+      if (object.getName() != null && !objectsByName.containsKey(object.getName())) {
+        objectsByName.put(object.getName(), i);
+      }
+    }
+
+    int systemCount = systemObjects.size;
+    int[] systemTileX = new int[systemCount];
+    int[] systemTileY = new int[systemCount];
+    boolean[] systemStandalone = new boolean[systemCount];
+    SystemStates[] systemStates = new SystemStates[systemCount];
+    for (int id = 0; id < systemCount; id++) {
+      RectangleMapObject system = (RectangleMapObject) objects.get(systemObjects.get(id));
+      // System objects sit a tile below the system tile itself
+      systemTileX[id] = (int) system.getRectangle().getX() / tileWidth;
+      systemTileY[id] = (int) (system.getRectangle().getY() / tileHeight) + 1;
+
+      Cell cell = collisionLayer.getCell(systemTileX[id], systemTileY[id]);
+      if (cell == null) {
+        throw new IllegalArgumentException("No system tile above system " + system.getName());
+      }
+      Tiles tile = Tiles.getTileById(cell.getTile().getId());
+      systemStates[id] = SystemRegistry.getStateOfTile(tile);
+      systemStandalone[id] = SystemRegistry.isStandaloneTile(tile);
+      if (systemStates[id] == null) {
+        throw new IllegalArgumentException("Use the coordinates of the System object on the"
+                                           .concat("tilemap - not the system tile."));
+      }
+    }
+
+    IntArray teleporterObjects = new IntArray();
+    IntArray teleporterLinks = new IntArray();
+    for (int i = 0; i < objects.getCount(); i++) {
+      MapObject object = objects.get(i);
+      String linkedName = object.getProperties().get("linked_teleporter", String.class);
+      if (object instanceof RectangleMapObject && linkedName != null
+          && objectsByName.containsKey(linkedName)) {
+        teleporterObjects.add(i);
+        teleporterLinks.add(objectsByName.get(linkedName));
+      }
+    }
+
+    return new MapBundle(width, height, tileWidth, tileHeight, objects.getCount(), navigable,
+        blocked, spawnTiles.toArray(), fleeTiles.toArray(), medbayObject, systemObjects.toArray(),
+        systemTileX, systemTileY, systemStandalone, systemStates, teleporterObjects.toArray(),
+        teleporterLinks.toArray(), new VisibilityTable(width, height, tileWidth, tileHeight,
+        blocked, getVisibilityRange(tileWidth)));
+  }
+
+  /**
+   * Load a bundle from a file, mapping it into memory where the file system allows it.
+   *
+   * @param file The bundle file
+   * @return The bundle
+   * @throws GdxRuntimeException if the file can't be read or isn't a bundle of this version
+   * */
+  public static MapBundle load(FileHandle file) {
+    ByteBuffer buffer;
+    try {
+      buffer = file.map();
+    } catch (GdxRuntimeException e) {
+      // Files inside a jar or on the classpath can't be mapped
+      buffer = ByteBuffer.wrap(file.readBytes());
+    }
+    // Mapped buffers are in native order, but bundles are written big endian
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    try {
+      return read(buffer);
+    } catch (BufferUnderflowException e) {
+      throw new GdxRuntimeException("Map bundle is truncated: " + file, e);
+    }
+  }
+
+  private static MapBundle read(ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new GdxRuntimeException("Not a map bundle of version " + VERSION);
+    }
+    int width = buffer.getInt();
+    int height = buffer.getInt();
+    int tileWidth = buffer.getInt();
+    int tileHeight = buffer.getInt();
+    int objectCount = buffer.getInt();
+    boolean[] navigable = readBits(buffer, width * height);
+    boolean[] blocked = readBits(buffer, width * height);
+    int[] spawnTiles = readInts(buffer);
+    int[] fleeTiles = readInts(buffer);
+    int medbayObject = buffer.getInt();
+
+    int systemCount = buffer.getInt();
+    int[] systemObjects = new int[systemCount];
+    int[] systemTileX = new int[systemCount];
+    int[] systemTileY = new int[systemCount];
+    boolean[] systemStandalone = new boolean[systemCount];
+    SystemStates[] systemStates = new SystemStates[systemCount];
+    for (int id = 0; id < systemCount; id++) {
+      systemObjects[id] = buffer.getInt();
+      systemTileX[id] = buffer.getInt();
+      systemTileY[id] = buffer.getInt();
+      systemStandalone[id] = buffer.get() != 0;
+      systemStates[id] = SystemStates.values()[buffer.get()];
+    }
+
+    int teleporterCount = buffer.getInt();
+    int[] teleporterObjects = new int[teleporterCount];
+    int[] teleporterLinks = new int[teleporterCount];
+    for (int i = 0; i < teleporterCount; i++) {
+      teleporterObjects[i] = buffer.getInt();
+      teleporterLinks[i] = buffer.getInt();
+    }
+    VisibilityTable visibility = VisibilityTable.read(buffer, width, height, tileWidth,
+        tileHeight, blocked);
+
+    return new MapBundle(width, height, tileWidth, tileHeight, objectCount, navigable, blocked,
+        spawnTiles, fleeTiles, medbayObject, systemObjects, systemTileX, systemTileY,
+        systemStandalone, systemStates, teleporterObjects, teleporterLinks, visibility);
+  }
+
+  /**
+   * Write the bundle in the format {@link MapBundle#load(FileHandle)} reads.
+   *
+   * @param stream The stream to write to, which is left open
+   * @throws IOException if the stream can't be written to
+   * */
+  public void write(OutputStream stream) throws IOException {
+    DataOutputStream output = new DataOutputStream(stream);
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(width);
+    output.writeInt(height);
+    output.writeInt(tileWidth);
+    output.writeInt(tileHeight);
+    output.writeInt(objectCount);
+    writeBits(output, navigable);
+    writeBits(output, blocked);
+    writeInts(output, spawnTiles);
+    writeInts(output, fleeTiles);
+    output.writeInt(medbayObject);
+
+    output.writeInt(systemObjects.length);
+    for (int id = 0; id < systemObjects.length; id++) {
+      output.writeInt(systemObjects[id]);
+      output.writeInt(systemTileX[id]);
+      output.writeInt(systemTileY[id]);
+      output.writeByte(systemStandalone[id] ? 1 : 0);
+      output.writeByte(systemStates[id].ordinal());
+    }
+
+    output.writeInt(teleporterObjects.length);
+    for (int i = 0; i < teleporterObjects.length; i++) {
+      output.writeInt(teleporterObjects[i]);
+      output.writeInt(teleporterLinks[i]);
+    }
+    visibility.write(output);
+    output.flush();
+  }
+
+  /**
+   * Check whether the bundle was compiled from a map shaped like the given one, with the current
+   * sight range. This can't tell every change apart, but catches a bundle left behind after
+   * tiles or objects were added.
+   *
+   * @param map The map to check against
+   * @return True if the map has the same size, tile size and number of objects, and the
+   *     visibility table reaches as far as infiltrators can see
+   * */
+  public boolean matches(TiledMap map) {
+    TiledMapTileLayer navigationLayer = (TiledMapTileLayer) map.getLayers()
+        .get("navigation_layer");
+    return navigationLayer.getWidth() == width && navigationLayer.getHeight() == height
+        && navigationLayer.getTileWidth() == tileWidth
+        && navigationLayer.getTileHeight() == tileHeight
+        && map.getLayers().get("object_layer").getObjects().getCount() == objectCount
+        && visibility.getRange() == getVisibilityRange(tileWidth);
+  }
+
+  private static void writeBits(DataOutputStream output, boolean[] bits) throws IOException {
+    for (int word = 0; word < (bits.length + 63) / 64; word++) {
+      long value = 0;
+      for (int bit = 0; bit < 64 && word * 64 + bit < bits.length; bit++) {
+        if (bits[word * 64 + bit]) {
+          value |= 1L << bit;
+        }
+      }
+      output.writeLong(value);
+    }
+  }
+
+  private static boolean[] readBits(ByteBuffer buffer, int count) {
+    boolean[] bits = new boolean[count];
+    for (int word = 0; word < (count + 63) / 64; word++) {
+      long value = buffer.getLong();
+      for (int bit = 0; bit < 64 && word * 64 + bit < count; bit++) {
+        bits[word * 64 + bit] = (value & (1L << bit)) != 0;
+      }
+    }
+    return bits;
+  }
+
+  private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+    output.writeInt(values.length);
+    for (int value : values) {
+      output.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer buffer) {
+    int[] values = new int[buffer.getInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = buffer.getInt();
+    }
+    return values;
+  }
+}
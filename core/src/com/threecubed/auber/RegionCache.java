@@ -0,0 +1,63 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+
+/**
+ * Looks up the regions of a texture atlas by name in constant time. {@link TextureAtlas#findRegion}
+ * compares the name against every region in turn, so the regions are indexed once up front
+ * instead. The index is never changed after it is built, so it can be read from any thread.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class RegionCache {
+  private final ObjectMap<String, AtlasRegion> regions = new ObjectMap<>();
+
+  /**
+   * Index every region of an atlas. Where several regions share a name, the first is used, the
+   * same one {@link TextureAtlas#findRegion} would return.
+   *
+   * @param atlas The atlas to index
+   * */
+  public RegionCache(TextureAtlas atlas) {
+    Array<AtlasRegion> atlasRegions = atlas.getRegions();
+    for (int i = 0; i < atlasRegions.size; i++) {
+      AtlasRegion region = atlasRegions.get(i);
+      if (!regions.containsKey(region.name)) {
+        regions.put(region.name, region);
+      }
+    }
+  }
+
+  /**
+   * Get a region by name. The region is shared, so it must not be modified.
+   *
+   * @param name The name of the region
+   * @return The region
+   * @throws IllegalArgumentException if the atlas has no region with that name
+   * */
+  public AtlasRegion getRegion(String name) {
+    AtlasRegion region = regions.get(name);
+    if (region == null) {
+      throw new IllegalArgumentException("No region named " + name + " in the atlas");
+    }
+    return region;
+  }
+
+  /**
+   * Create a new sprite of a region, which can be moved and rotated independently of any other.
+   *
+   * @param name The name of the region
+   * @return The sprite
+   * @throws IllegalArgumentException if the atlas has no region with that name
+   * */
+  public Sprite createSprite(String name) {
+    return new Sprite(getRegion(name));
+  }
+}
@@ -0,0 +1,124 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Picks places for entities to spawn. Spawn locations are bucketed into a coarse grid, stored
+ * row by row, so that the locations the camera might see form a handful of contiguous runs. A
+ * location out of sight can then be chosen uniformly with a single random number, skipping over
+ * those runs, rather than retrying random locations until one happens to be off-screen.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class SpawnService {
+  /** The width and height of each cell, in world units. */
+  public static final float CELL_SIZE = 128f;
+
+  private final int columns;
+  private final int rows;
+  private final float tileWidth;
+  private final float tileHeight;
+  /** Every spawn location, grouped by cell with the cells in row order. */
+  private final float[][] locations;
+  /** The position in {@link SpawnService#locations} each cell's locations start at. */
+  private final int[] cellStarts;
+
+  /**
+   * Bucket the given spawn locations.
+   *
+   * @param spawnLocations The bottom left corners of the tiles entities can spawn on
+   * @param width The width of the world, in world units
+   * @param height The height of the world, in world units
+   * @param tileWidth The width of a tile, which spawned entities fit within
+   * @param tileHeight The height of a tile, which spawned entities fit within
+   * */
+  public SpawnService(List<float[]> spawnLocations, float width, float height,
+      float tileWidth, float tileHeight) {
+    columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+    rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+
+    cellStarts = new int[columns * rows + 1];
+    for (float[] location : spawnLocations) {
+      cellStarts[getCell(location) + 1]++;
+    }
+    for (int i = 1; i < cellStarts.length; i++) {
+      cellStarts[i] += cellStarts[i - 1];
+    }
+    locations = new float[spawnLocations.size()][];
+    int[] cellFill = new int[columns * rows];
+    for (float[] location : spawnLocations) {
+      int cell = getCell(location);
+      locations[cellStarts[cell] + cellFill[cell]++] = location;
+    }
+  }
+
+  /**
+   * Pick any spawn location, with every location equally likely.
+   *
+   * @param randomNumberGenerator The random number generator to pick with
+   * @return The coordinates of the bottom left of the chosen tile
+   * */
+  public float[] pickRandom(Random randomNumberGenerator) {
+    return locations[Utils.randomIntInRange(randomNumberGenerator, 0, locations.length - 1)];
+  }
+
+  /**
+   * Pick a spawn location that the camera can't see, with every such location equally likely.
+   * Locations in cells the camera might see are never picked, even if they are just out of
+   * sight. If the camera could see every cell, any location is picked instead.
+   *
+   * @param camera The camera to stay out of sight of
+   * @param randomNumberGenerator The random number generator to pick with
+   * @return The coordinates of the bottom left of the chosen tile
+   * */
+  public float[] pickOffScreen(OrthographicCamera camera, Random randomNumberGenerator) {
+    float halfWidth = camera.viewportWidth * camera.zoom / 2;
+    float halfHeight = camera.viewportHeight * camera.zoom / 2;
+    // A tile can be seen if any part of it is on screen
+    int firstColumn = (int) Math.floor((camera.position.x - halfWidth - tileWidth) / CELL_SIZE);
+    int lastColumn = (int) Math.floor((camera.position.x + halfWidth) / CELL_SIZE);
+    int firstRow = (int) Math.floor((camera.position.y - halfHeight - tileHeight) / CELL_SIZE);
+    int lastRow = (int) Math.floor((camera.position.y + halfHeight) / CELL_SIZE);
+    if (lastColumn < 0 || firstColumn >= columns || lastRow < 0 || firstRow >= rows) {
+      return pickRandom(randomNumberGenerator);
+    }
+    firstColumn = Math.max(0, firstColumn);
+    lastColumn = Math.min(columns - 1, lastColumn);
+    firstRow = Math.max(0, firstRow);
+    lastRow = Math.min(rows - 1, lastRow);
+
+    // Each row of visible cells is a single run of locations
+    int visibleCount = 0;
+    for (int row = firstRow; row <= lastRow; row++) {
+      visibleCount += cellStarts[row * columns + lastColumn + 1]
+          - cellStarts[row * columns + firstColumn];
+    }
+    int hiddenCount = locations.length - visibleCount;
+    if (hiddenCount == 0) {
+      return pickRandom(randomNumberGenerator);
+    }
+
+    int index = Utils.randomIntInRange(randomNumberGenerator, 0, hiddenCount - 1);
+    for (int row = firstRow; row <= lastRow; row++) {
+      int runStart = cellStarts[row * columns + firstColumn];
+      if (index < runStart) {
+        break;
+      }
+      index += cellStarts[row * columns + lastColumn + 1] - runStart;
+    }
+    return locations[index];
+  }
+
+  private int getCell(float[] location) {
+    int column = Math.min(columns - 1, Math.max(0, (int) (location[0] / CELL_SIZE)));
+    int row = Math.min(rows - 1, Math.max(0, (int) (location[1] / CELL_SIZE)));
+    return row * columns + column;
+  }
+}
@@ -0,0 +1,232 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.threecubed.auber.World.SystemStates;
+import com.threecubed.auber.World.Tiles;
+import java.util.List;
+
+
+/**
+ * Holds the state of every system in the world, indexed by a system id. The state starts as
+ * decoded from the tiles by the map's {@link MapBundle}, after which this is the source of truth:
+ * changes are made here and announced to listeners, such as the world redrawing the system's
+ * tiles.
+ *
+ * <p>Ids are assigned in the order systems appear in the object layer. A system can be found by
+ * its object or by the coordinates of its object, both in constant time.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class SystemRegistry {
+  /** Receives every change of a system's state. */
+  public interface Listener {
+    /**
+     * Called after a system's state has changed.
+     *
+     * @param id The id of the system
+     * @param system The system object
+     * @param oldState The state the system was in
+     * @param newState The state the system is now in
+     * */
+    void systemStateChanged(int id, RectangleMapObject system, SystemStates oldState,
+        SystemStates newState);
+  }
+
+  /** The tile for a system built into a wall in each state, indexed by state. */
+  private static final Tiles[] WALL_SYSTEM_TILES = {
+    Tiles.WALL_SYSTEM, Tiles.WALL_SYSTEM_ATTACKED, Tiles.WALL_SYSTEM_DESTROYED
+  };
+  /** The tile for a standalone system in each state, indexed by state. */
+  private static final Tiles[] STANDALONE_SYSTEM_TILES = {
+    Tiles.STANDALONE_SYSTEM, Tiles.STANDALONE_SYSTEM_ATTACKED, Tiles.STANDALONE_SYSTEM_DESTROYED
+  };
+  /** The light above a standalone system in each state, indexed by state. */
+  private static final Tiles[] STANDALONE_SYSTEM_LIGHT_TILES = {
+    Tiles.STANDALONE_SYSTEM_LIGHT, Tiles.STANDALONE_SYSTEM_LIGHT_ATTACKED,
+    Tiles.STANDALONE_SYSTEM_LIGHT_DESTROYED
+  };
+
+  private final RectangleMapObject[] systems;
+  private final SystemStates[] states;
+  /** The state each system starts a game in. */
+  private final SystemStates[] startingStates;
+  /** Whether each system stands on its own, with a light above it, rather than in a wall. */
+  private final boolean[] standalone;
+  private final int[] tileX;
+  private final int[] tileY;
+  private final int tileWidth;
+  private final int tileHeight;
+  private final int layerWidth;
+  /** The id of the system on each tile, keyed by {@code y * layerWidth + x}. */
+  private final IntIntMap idsByTile = new IntIntMap();
+  private final Array<Listener> listeners = new Array<>();
+
+  /**
+   * Register every system, with their tiles and starting states from a map bundle.
+   *
+   * @param systemObjects The system objects from the map's object layer, in the same order as
+   *                      the bundle's systems
+   * @param bundle The bundle of the map the systems are on
+   * */
+  public SystemRegistry(List<RectangleMapObject> systemObjects, MapBundle bundle) {
+    int count = systemObjects.size();
+    systems = systemObjects.toArray(new RectangleMapObject[count]);
+    startingStates = bundle.systemStates;
+    states = startingStates.clone();
+    standalone = bundle.systemStandalone;
+    tileX = bundle.systemTileX;
+    tileY = bundle.systemTileY;
+    tileWidth = bundle.tileWidth;
+    tileHeight = bundle.tileHeight;
+    layerWidth = bundle.width;
+
+    for (int id = 0; id < count; id++) {
+      idsByTile.put(getTileKey(systems[id].getRectangle().getX(),
+          systems[id].getRectangle().getY()), id);
+    }
+  }
+
+  /**
+   * Get the state a system tile shows.
+   *
+   * @param tile The tile on the collision layer above a system object
+   * @return The state of the system, or null if the tile isn't a system
+   * */
+  static SystemStates getStateOfTile(Tiles tile) {
+    for (SystemStates state : SystemStates.values()) {
+      if (tile == WALL_SYSTEM_TILES[state.ordinal()]
+          || tile == STANDALONE_SYSTEM_TILES[state.ordinal()]) {
+        return state;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether a system tile is a standalone system, rather than one built into a wall.
+   *
+   * @param tile The tile on the collision layer above a system object
+   * @return True if the tile is a standalone system in any state
+   * */
+  static boolean isStandaloneTile(Tiles tile) {
+    for (Tiles standaloneTile : STANDALONE_SYSTEM_TILES) {
+      if (tile == standaloneTile) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Subscribe to changes in system state.
+   *
+   * @param listener The listener to notify of changes
+   * */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public int getSystemCount() {
+    return systems.length;
+  }
+
+  public RectangleMapObject getSystem(int id) {
+    return systems[id];
+  }
+
+  public SystemStates getState(int id) {
+    return states[id];
+  }
+
+  public boolean isStandalone(int id) {
+    return standalone[id];
+  }
+
+  public int getTileX(int id) {
+    return tileX[id];
+  }
+
+  public int getTileY(int id) {
+    return tileY[id];
+  }
+
+  /**
+   * Find the id of the system whose object is at the given coordinates.
+   *
+   * @param x The x coordinate of the system object (not the tile)
+   * @param y The y coordinate of the system object (not the tile)
+   * @return The id of the system, or -1 if there is no system there
+   * */
+  public int findId(float x, float y) {
+    return idsByTile.get(getTileKey(x, y), -1);
+  }
+
+  /**
+   * Find the id of a system object.
+   *
+   * @param system The system object
+   * @return The id of the system, or -1 if the object isn't a system
+   * */
+  public int findId(RectangleMapObject system) {
+    int id = findId(system.getRectangle().getX(), system.getRectangle().getY());
+    return id != -1 && systems[id] == system ? id : -1;
+  }
+
+  /**
+   * Change the state of a system, notifying every listener if it is different.
+   *
+   * @param id The id of the system
+   * @param newState The new state of the system
+   * */
+  public void setState(int id, SystemStates newState) {
+    SystemStates oldState = states[id];
+    if (oldState == newState) {
+      return;
+    }
+    states[id] = newState;
+    for (int i = 0; i < listeners.size; i++) {
+      listeners.get(i).systemStateChanged(id, systems[id], oldState, newState);
+    }
+  }
+
+  /**
+   * Put every system back in the state it started the game in, notifying every listener of
+   * each system that changes.
+   * */
+  public void reset() {
+    for (int id = 0; id < systems.length; id++) {
+      setState(id, startingStates[id]);
+    }
+  }
+
+  /**
+   * Get the cell to draw for a system in a given state.
+   *
+   * @param id The id of the system
+   * @param state The state to draw
+   * @return The system's cell, shared between every system of the same kind and state
+   * */
+  public Cell getSystemCell(int id, SystemStates state) {
+    return (standalone[id] ? STANDALONE_SYSTEM_TILES : WALL_SYSTEM_TILES)[state.ordinal()]
+        .getCell();
+  }
+
+  /**
+   * Get the cell to draw above a standalone system in a given state.
+   *
+   * @param state The state to draw
+   * @return The light's cell, shared between every standalone system in the same state
+   * */
+  public Cell getLightCell(SystemStates state) {
+    return STANDALONE_SYSTEM_LIGHT_TILES[state.ordinal()].getCell();
+  }
+
+  private int getTileKey(float x, float y) {
+    return ((int) (y / tileHeight) + 1) * layerWidth + (int) x / tileWidth;
+  }
+}
@@ -1,8 +1,11 @@
 package com.threecubed.auber;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
 import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.maps.MapObjects;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
@@ -11,18 +14,33 @@ import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.JsonValue;
+import com.threecubed.auber.entities.Civilian;
 import com.threecubed.auber.entities.GameEntity;
+import com.threecubed.auber.entities.Infiltrator;
+import com.threecubed.auber.entities.Npc;
+import com.threecubed.auber.entities.NpcUpdater;
 import com.threecubed.auber.entities.Player;
+import com.threecubed.auber.entities.PowerUp;
+import com.threecubed.auber.entities.SpatialGrid;
+import com.threecubed.auber.input.PlayerController;
 import com.threecubed.auber.pathfinding.NavigationMesh;
+import com.threecubed.auber.pathfinding.PathRequestQueue;
+import com.threecubed.auber.pathfinding.VisibilityTable;
 import com.threecubed.auber.save.Save;
-import com.threecubed.auber.screens.GameOverScreen;
-import com.threecubed.auber.screens.GameScreen;
-import com.threecubed.auber.screens.MenuScreen;
+import com.threecubed.auber.timing.FrameGovernor;
+import com.threecubed.auber.timing.TimingWheel;
+import com.threecubed.auber.timing.UpdateProfiler;
+import com.threecubed.auber.timing.UpdateProfiler.Subsystem;
 import com.threecubed.auber.ui.GameUi;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 
@@ -35,10 +53,10 @@ import java.util.Random;
  * @since 1.0
  * */
 public class World {
-  private AuberGame game;
   public GameUi ui;
 
   public Player player;
+  /** The number of infiltrators in the world that haven't been caught. */
   public int infiltratorCount;
 
   public boolean demoMode = false;
@@ -50,25 +68,78 @@ public class World {
   private List<GameEntity> entities = new ArrayList<>();
   public List<GameEntity> newEntities = new ArrayList<>();
   public List<GameEntity> oldEntities = new ArrayList<>();
+  /** Entities other than NPCs, which are all updated every tick. */
+  private List<GameEntity> tickingEntities = new ArrayList<>();
+  /**
+   * NPCs with something to do every tick. Every other NPC is asleep, costing nothing per tick
+   * until a timer or event wakes it.
+   * */
+  private List<Npc> awakeNpcs = new ArrayList<>();
+  /** NPCs that fell asleep last tick, whose previous state still needs to catch up. */
+  private List<Npc> settlingNpcs = new ArrayList<>();
 
   public OrthographicCamera camera = new OrthographicCamera();
 
-  public static final TiledMap map = new TmxMapLoader().load("map.tmx");
-  public static final TiledMapTileSet tileset = map.getTileSets().getTileSet(0);
-  public TextureAtlas atlas;
+  /**
+   * The map as loaded from disk, shared between every world. It must never be modified, each
+   * world takes its own copy of the layers it changes.
+   * */
+  private static TiledMap baseMap;
+  private static TiledMapTileSet tileset;
+  /** Names of the layers that are modified during a game, copied for each world. */
+  private static final String[] MUTABLE_LAYERS = {"collision_layer", "foreground_layer"};
 
-  public OrthogonalTiledMapRenderer renderer = new OrthogonalTiledMapRenderer(map);
+  /** This world's map, sharing all unchanging layers with {@link World#baseMap}. */
+  public final TiledMap map;
+  /** The regions of the game's atlas, indexed by name and shared with the rest of the game. */
+  public final RegionCache regions;
 
+  /** Systems that haven't been destroyed yet. */
   public ArrayList<RectangleMapObject> systems = new ArrayList<>();
+  /** The state of every system, including destroyed ones. */
+  public final SystemRegistry systemRegistry;
   public RectangleMapObject medbay;
   public ArrayList<float[]> spawnLocations = new ArrayList<>();
+  /** Picks from {@link World#spawnLocations}, such as places out of the player's sight. */
+  public final SpawnService spawns;
 
-  public final Random randomNumberGenerator = new Random();
+  public final Random randomNumberGenerator;
+
+  // -----------------SIMULATION-----------------
+  /**
+   * The tick rate the game was balanced at. Every per-tick constant (speeds, charge rates, heal
+   * rates) is expressed in terms of this rate and scaled by {@link World#getTickScale()}.
+   * */
+  public static final float REFERENCE_TICK_RATE = 60f;
+  /** The longest frame the simulation will try to catch up on before dropping time. */
+  public static final float MAX_FRAME_TIME = 0.25f;
+  /** The number of simulation ticks per second. */
+  private float tickRate = REFERENCE_TICK_RATE;
+  /** The number of ticks the world has been simulated for. */
+  public long tick = 0;
+  /** Schedules timed events, such as NPC idling and debuffs, in simulation time. */
+  public final TimingWheel timers = new TimingWheel(this);
+  /** Plans NPC movement in parallel ahead of the sequential entity update. */
+  public final NpcUpdater npcUpdater = new NpcUpdater();
+  /** The time a rendered frame should take at most, in seconds. */
+  public static final float FRAME_BUDGET = 1f / 60f;
+  /** Lowers the fidelity of non-essential work when frames run over budget. */
+  public final FrameGovernor governor = new FrameGovernor(FRAME_BUDGET);
+  /** Path requests that may be spread over several ticks when frames are running long. */
+  public final PathRequestQueue pathRequests = new PathRequestQueue();
+  /** The time spent in each part of {@link World#update()}. */
+  public final UpdateProfiler profiler = new UpdateProfiler();
 
   // ------------------NAVIGATION----------------
-  public final NavigationMesh navigationMesh = new NavigationMesh(
-      (TiledMapTileLayer) map.getLayers().get("navigation_layer")
-      );
+  public final NavigationMesh navigationMesh;
+  /** Entities bucketed by where they were at the start of the tick, for nearby lookups. */
+  public final SpatialGrid entityGrid;
+  /** Which tiles can see each other, shared by every world on a map of the same scale. */
+  public final VisibilityTable visibility;
+  /** The interactable objects of the map, such as systems and teleporters. */
+  public final InteractionIndex interactions;
+  /** Map bundles that have been loaded or compiled, by map scale. */
+  private static final Map<Integer, MapBundle> mapBundles = new HashMap<>();
   public ArrayList<float[]> fleePoints = new ArrayList<>();
 
   /** Coordinates for the bottom left and top right tiles of the brig. */
@@ -95,15 +166,10 @@ public class World {
 
   // ------------------RENDERING-----------------
   /** IDs of layers that should be rendered behind entities. */
-  public final int[] backgroundLayersIds = {
-    map.getLayers().getIndex("background_layer"),
-    };
+  public final int[] backgroundLayersIds;
 
   /** IDs of layers that should be rendered infront of entities. */
-  public final int[] foregroundLayersIds = {
-    map.getLayers().getIndex("foreground_layer"),
-    map.getLayers().getIndex("collision_layer")
-    };
+  public final int[] foregroundLayersIds;
 
 
   /** An enum containing information about all dynamic/frequently accessed tiles. */
@@ -126,20 +192,36 @@ public class World {
 
 
     public final int tileId;
+    /** A cell showing this tile, shared by every layer that uses it. */
+    private final Cell cell;
+    /** Every tile indexed by its ID, with gaps left null. */
+    private static final Tiles[] tilesById;
+
+    static {
+      int maxId = 0;
+      for (Tiles tile : values()) {
+        maxId = Math.max(maxId, tile.tileId);
+      }
+      tilesById = new Tiles[maxId + 1];
+      for (Tiles tile : values()) {
+        tilesById[tile.tileId] = tile;
+      }
+    }
 
     Tiles(int tileId) {
       this.tileId = tileId;
+      cell = new Cell();
+      cell.setTile(getTileset().getTile(tileId));
     }
 
     /**
-     * Return a cell object for a given tile type via its tileId.
+     * Return a cell object for a given tile type via its tileId. The cell is shared, so it must
+     * not be modified.
      *
      * @return A cell object for the given tile ID
      * */
     public Cell getCell() {
-      Cell output = new Cell();
-      output.setTile(tileset.getTile(tileId));
-      return output;
+      return cell;
     }
 
     /**
@@ -150,10 +232,8 @@ public class World {
      * @throws IllegalArgumentException Thrown if no tile could be found with the given ID
      * */
     public static Tiles getTileById(int id) {
-      for (Tiles tile : Tiles.values()) {
-        if (tile.tileId == id) {
-          return tile;
-        }
+      if (id >= 0 && id < tilesById.length && tilesById[id] != null) {
+        return tilesById[id];
       }
       throw new IllegalArgumentException("Tile of given ID not found.");
     }
@@ -187,6 +267,19 @@ public class World {
   public static final float NPC_FLEE_MULTIPLIER = 1.2f;
   /** The shortest distance an NPC should move from its current position when fleeing. */
   public static final float NPC_MIN_FLEE_DISTANCE = 80f;
+  /**
+   * The number of ticks between the steps of an NPC that can't be seen. Hidden NPCs cover the
+   * same distance in fewer, larger steps.
+   * */
+  public static final int NPC_LOD_INTERVAL = 4;
+  /** How far outside the screen an NPC must be before it is stepped less often. */
+  public static final float NPC_LOD_MARGIN = 64f;
+  /** The distance NPCs try to keep from each other and the player. */
+  public static final float NPC_SEPARATION_RADIUS = 12f;
+  /** The most neighbours an NPC steers away from each tick. */
+  public static final int NPC_MAX_NEIGHBOURS = 6;
+  /** The furthest an NPC is pushed away from its neighbours in a tick, relative to its speed. */
+  public static final float NPC_SEPARATION_STRENGTH = 0.5f;
   /** The distance an NPC can hear the teleporter ray shoot from. */
   public static final float NPC_EAR_STRENGTH = 80f;
   /** The number of NPCs in the game. */
@@ -201,6 +294,13 @@ public class World {
     DESTROYED
   }
 
+  /** The outcome of a game, as returned by {@link World#getEndState()}. */
+  public static enum EndStates {
+    RUNNING,
+    WON,
+    LOST
+  }
+
   public Difficulty difficulty;
 
   public enum Difficulty {
@@ -242,81 +342,142 @@ public class World {
   /**
    * Initialise the game world.
    *
-   * @param game The game object.
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param difficulty The difficulty of the game
    * */
-  public World(AuberGame game, Difficulty difficulty) {
-    this.game = game;
-    atlas = game.atlas;
+  public World(RegionCache regions, Difficulty difficulty) {
+    this(regions, difficulty, new Random().nextLong());
+  }
 
-    this.difficulty = difficulty;
-    this.POWER_UP_COUNT = difficulty.POWER_UP_COUNT;
-    this.MAX_INFILTRATORS = difficulty.MAX_INFILTRATORS;
-    this.NPC_COUNT = difficulty.NPC_COUNT;
-    this.SYSTEM_BREAK_TIME = difficulty.SYSTEM_BREAK_TIME;
+  /**
+   * Initialise the game world with a seeded random number generator, so that a game can be
+   * reproduced.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param difficulty The difficulty of the game
+   * @param seed The seed for the world's random number generator
+   * */
+  public World(RegionCache regions, Difficulty difficulty, long seed) {
+    this(regions, difficulty, seed, 1);
+  }
 
-    ui = new GameUi(game);
-    ui.queueMessage(difficulty.name());
+  /**
+   * Initialise the game world on a map scaled up by the given factor. Used for stress testing,
+   * a scale of 1 gives the normal map.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param difficulty The difficulty of the game
+   * @param seed The seed for the world's random number generator
+   * @param mapScale The number of tiles each tile of the map should cover in each direction
+   * */
+  public World(RegionCache regions, Difficulty difficulty, long seed, int mapScale) {
+    this.regions = regions;
+    randomNumberGenerator = new Random(seed);
+
+    map = copyBaseMap(mapScale);
+    MapBundle bundle = getMapBundle(mapScale, map);
+    navigationMesh = new NavigationMesh(bundle);
+    entityGrid = new SpatialGrid(bundle.width * bundle.tileWidth,
+        bundle.height * bundle.tileHeight);
+    visibility = bundle.visibility;
+    interactions = new InteractionIndex(map.getLayers().get("object_layer"),
+        bundle.width * bundle.tileWidth, bundle.height * bundle.tileHeight, bundle);
+    backgroundLayersIds = new int[] {
+      map.getLayers().getIndex("background_layer"),
+      };
+    foregroundLayersIds = new int[] {
+      map.getLayers().getIndex("foreground_layer"),
+      map.getLayers().getIndex("collision_layer")
+      };
+
+    ui = new GameUi(regions);
 
     // Configure the camera
     camera.setToOrtho(false, 480, 270);
     camera.update();
 
-    Player player = new Player(64f, 64f, this);
-    queueEntityAdd(player);
-    this.player = player;
+    startGame(difficulty);
 
     MapObjects objects = map.getLayers().get("object_layer").getObjects();
-    for (MapObject object : objects) {
-      if (object instanceof RectangleMapObject) {
-        RectangleMapObject rectangularObject = (RectangleMapObject) object;
-        switch (rectangularObject.getProperties().get("type", String.class)) {
-          case "system":
-            systems.add(rectangularObject);
-            break;
-          case "medbay":
-            medbay = rectangularObject;
-            break;
-          default:
-            break;
-        }
-      }
+    for (int systemObject : bundle.systemObjects) {
+      systems.add((RectangleMapObject) objects.get(systemObject));
+    }
+    if (bundle.medbayObject != -1) {
+      medbay = (RectangleMapObject) objects.get(bundle.medbayObject);
     }
 
-    TiledMapTileLayer navigationLayer = (TiledMapTileLayer) map.getLayers().get("navigation_layer");
-    for (int y = 0; y < navigationLayer.getHeight(); y++) {
-      for (int x = 0; x < navigationLayer.getWidth(); x++) {
-        Cell currentCell = navigationLayer.getCell(x, y);
-        float[] cellCoordinates = {x * navigationLayer.getTileWidth(),
-                                   y * navigationLayer.getTileHeight()};
-        if (currentCell != null) {
-          spawnLocations.add(cellCoordinates);
-          if (currentCell.getTile().getId() == Tiles.FLEE_POINT.tileId) {
-            fleePoints.add(cellCoordinates);
-          }
+    systemRegistry = new SystemRegistry(systems, bundle);
+    systemRegistry.addListener(new SystemRegistry.Listener() {
+      @Override
+      public void systemStateChanged(int id, RectangleMapObject system, SystemStates oldState,
+          SystemStates newState) {
+        drawSystemTiles(id, newState);
+        if (newState == SystemStates.DESTROYED) {
+          systems.remove(system);
         }
       }
+    });
+    systemRegistry.addListener(ui);
+
+    for (int tile : bundle.spawnTiles) {
+      spawnLocations.add(new float[] {(tile % bundle.width) * bundle.tileWidth,
+                                      (tile / bundle.width) * bundle.tileHeight});
+    }
+    for (int tile : bundle.fleeTiles) {
+      fleePoints.add(new float[] {(tile % bundle.width) * bundle.tileWidth,
+                                  (tile / bundle.width) * bundle.tileHeight});
     }
+    spawns = new SpawnService(spawnLocations, bundle.width * bundle.tileWidth,
+        bundle.height * bundle.tileHeight, bundle.tileWidth, bundle.tileHeight);
   }
 
   /**
-   * Initialise an instance of the world with the given game object.
+   * Initialise an instance of the world with the given atlas regions.
    * Demo mode locks the player to the center of the screen, makes them invisible and expands the
    * camera to view the whole map.
    *
-   * @param game The game object
+   * @param regions The regions of the atlas to create entity sprites from
    * @param demoMode Whether to run the game in demo mode
+   * @param ifLoad Whether to load the player's position from the save file
+   * @param difficulty The difficulty of the game
    * */
-  public World(AuberGame game, boolean demoMode, boolean ifLoad, Difficulty difficulty) {
-    this(game, difficulty);
+  public World(RegionCache regions, boolean demoMode, boolean ifLoad, Difficulty difficulty) {
+    this(regions, demoMode, ifLoad, difficulty, new Random().nextLong());
+  }
+
+  /**
+   * Initialise an instance of the world with the given atlas regions and random seed.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param demoMode Whether to run the game in demo mode
+   * @param ifLoad Whether to load the player's position from the save file
+   * @param difficulty The difficulty of the game
+   * @param seed The seed for the world's random number generator
+   * */
+  public World(RegionCache regions, boolean demoMode, boolean ifLoad, Difficulty difficulty,
+      long seed) {
+    this(regions, demoMode, ifLoad, difficulty, seed, 1);
+  }
+
+  /**
+   * Initialise an instance of the world on a map scaled up by the given factor.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param demoMode Whether to run the game in demo mode
+   * @param ifLoad Whether to load the player's position from the save file
+   * @param difficulty The difficulty of the game
+   * @param seed The seed for the world's random number generator
+   * @param mapScale The number of tiles each tile of the map should cover in each direction
+   * */
+  public World(RegionCache regions, boolean demoMode, boolean ifLoad, Difficulty difficulty,
+      long seed, int mapScale) {
+    this(regions, difficulty, seed, mapScale);
 
     this.demoMode = demoMode;
     this.ifLoad = ifLoad;
     if (demoMode) {
       camera.setToOrtho(false, 1920, 1080);
-      TiledMapTileLayer layer = ((TiledMapTileLayer) map.getLayers().get(2));
-      player.position.x = (layer.getWidth() * layer.getTileWidth()) / 2;
-      player.position.y = (layer.getHeight() * layer.getTileHeight()) / 2;
-      player.sprite.setColor(1f, 1f, 1f, 0f);
+      hidePlayerForDemo();
     }
     if (ifLoad){
       Save save = new Save();
@@ -331,9 +492,421 @@ public class World {
 
   }
 
+  /**
+   * Apply a difficulty's settings and add a new player, as at the start of every game.
+   *
+   * @param difficulty The difficulty of the game
+   * */
+  private void startGame(Difficulty difficulty) {
+    this.difficulty = difficulty;
+    this.POWER_UP_COUNT = difficulty.POWER_UP_COUNT;
+    this.MAX_INFILTRATORS = difficulty.MAX_INFILTRATORS;
+    this.NPC_COUNT = difficulty.NPC_COUNT;
+    this.SYSTEM_BREAK_TIME = difficulty.SYSTEM_BREAK_TIME;
+    ui.queueMessage(difficulty.name());
+
+    Player player = new Player(64f, 64f, this);
+    queueEntityAdd(player);
+    this.player = player;
+  }
+
+  /**
+   * Move the player to the centre of the map and hide them, so the camera shows the whole map in
+   * demo mode.
+   * */
+  private void hidePlayerForDemo() {
+    TiledMapTileLayer layer = ((TiledMapTileLayer) map.getLayers().get(2));
+    player.position.x = (layer.getWidth() * layer.getTileWidth()) / 2;
+    player.position.y = (layer.getHeight() * layer.getTileHeight()) / 2;
+    player.visible = false;
+  }
+
+  /**
+   * Restore the world to the state it was created in, ready for a new game to be spawned with
+   * {@link World#spawnEntities()}. The map, navigation mesh, indexes, UI and anything listening
+   * to the systems, such as a renderer, are all kept. The only tiles a game changes are those of
+   * its systems, which are redrawn as the registry puts each system back in its starting state.
+   *
+   * <p>Entities are not reused. The new game's player, NPCs and power ups are created afresh, as
+   * their constructors are what place them and draw from the random number generator.
+   *
+   * @param difficulty The difficulty of the new game
+   * */
+  public void reset(Difficulty difficulty) {
+    reset(difficulty, new Random().nextLong());
+  }
+
+  /**
+   * Restore the world to the state it was created in, with a seeded random number generator so
+   * that a game played after a reset is the same as one played in a new world.
+   *
+   * @param difficulty The difficulty of the new game
+   * @param seed The seed for the world's random number generator
+   * */
+  public void reset(Difficulty difficulty, long seed) {
+    randomNumberGenerator.setSeed(seed);
+    timers.reset();
+    pathRequests.clear();
+    entities.clear();
+    newEntities.clear();
+    oldEntities.clear();
+    tickingEntities.clear();
+    awakeNpcs.clear();
+    settlingNpcs.clear();
+    // Empty the grid too, so a frame drawn before the first tick shows none of the old entities
+    entityGrid.rebuild(entities);
+    infiltratorCount = 0;
+    infiltratorsAddedCount = 0;
+    auberTeleporterCharge = 0f;
+    tick = 0;
+    ifLoad = false;
+    // Off screen spawns depend on the camera, so put it back where setToOrtho left it
+    camera.position.set(camera.viewportWidth / 2, camera.viewportHeight / 2, 0);
+    camera.update();
+
+    ui.reset();
+    systemRegistry.reset();
+    // Destroyed systems were removed from the list as they were destroyed
+    systems.clear();
+    for (int id = 0; id < systemRegistry.getSystemCount(); id++) {
+      systems.add(systemRegistry.getSystem(id));
+    }
+
+    PlayerController controller = player.controller;
+    startGame(difficulty);
+    player.controller = controller;
+    if (demoMode) {
+      hidePlayerForDemo();
+    }
+  }
+
+  /**
+   * Advance the simulation by a single fixed step of {@link World#getTickLength()} seconds.
+   * Entities store their previous state before updating so they can be interpolated when
+   * rendered between ticks.
+   * */
+  public void update() {
+    profiler.beginTick();
+    // Add any queued entities
+    updateEntities();
+    profiler.mark(Subsystem.ENTITY_QUEUE);
+    timers.advance();
+    profiler.mark(Subsystem.TIMERS);
+    pathRequests.deferring = governor.isDegraded(FrameGovernor.DEFER_PATHS_LEVEL);
+    pathRequests.process(this);
+    profiler.mark(Subsystem.PATH_REQUESTS);
+
+    for (GameEntity entity : tickingEntities) {
+      entity.storePreviousState();
+    }
+    for (Npc npc : awakeNpcs) {
+      npc.storePreviousState();
+    }
+    // Stop NPCs that have just fallen asleep from rendering between their last two positions
+    for (Npc npc : settlingNpcs) {
+      npc.storePreviousState();
+    }
+    settlingNpcs.clear();
+    entityGrid.rebuild(entities);
+    profiler.mark(Subsystem.SPATIAL_INDEX);
+    // NPCs plan their movement in parallel, then commit it in order as they are updated
+    npcUpdater.planSteps(this);
+    profiler.mark(Subsystem.NPC_PLANNING);
+
+    for (GameEntity entity : tickingEntities) {
+      entity.update(this);
+    }
+    // NPCs woken during the update are added to the end of the list and updated this tick
+    for (int i = 0; i < awakeNpcs.size(); i++) {
+      awakeNpcs.get(i).update(this);
+    }
+    putIdleNpcsToSleep();
+    profiler.mark(Subsystem.ENTITY_UPDATE);
+    // Index where entities have moved to, so the grid is up to date when the tick is rendered
+    entityGrid.rebuild(entities);
+    profiler.mark(Subsystem.SPATIAL_INDEX);
+
+    camera.position.set(player.position.x, player.position.y, 0);
+    camera.update();
+
+    if (infiltratorCount < World.MAX_INFILTRATORS_IN_GAME
+        && infiltratorsAddedCount < MAX_INFILTRATORS) {
+      // Choose where to spawn first, so the infiltrator's first path starts from the right place
+      float[] location = spawns.pickOffScreen(camera, randomNumberGenerator);
+      queueEntityAdd(new Infiltrator(location[0], location[1], this));
+      infiltratorsAddedCount++;
+    }
+    profiler.mark(Subsystem.SPAWNING);
+    profiler.endTick();
+    tick++;
+  }
+
+  /**
+   * Set the number of simulation ticks per second. Gameplay speed is unaffected as all movement
+   * is scaled by {@link World#getTickScale()}.
+   *
+   * @param tickRate The new tick rate, in ticks per second
+   * */
+  public void setTickRate(float tickRate) {
+    if (tickRate <= 0) {
+      throw new IllegalArgumentException("Tick rate must be positive");
+    }
+    this.tickRate = tickRate;
+  }
+
+  public float getTickRate() {
+    return tickRate;
+  }
+
+  /**
+   * Get the length of a single simulation tick.
+   *
+   * @return The length of a tick in seconds
+   * */
+  public float getTickLength() {
+    return 1f / tickRate;
+  }
+
+  /**
+   * Get the factor that per-tick constants should be multiplied by to account for the
+   * difference between the current tick rate and {@link World#REFERENCE_TICK_RATE}.
+   *
+   * @return The tick scale, 1 when running at the reference tick rate
+   * */
+  public float getTickScale() {
+    return REFERENCE_TICK_RATE / tickRate;
+  }
+
+  /**
+   * Create this world's copy of the map. Tile layers that change during a game are copied, and
+   * object layers get their own object list since libGDX iterators cannot be shared between
+   * threads. Every other layer, the tileset, the cells and the objects themselves are shared
+   * with {@link World#baseMap}.
+   *
+   * <p>A scale greater than 1 instead builds a larger map for stress testing, with every tile
+   * repeated in a square of scale by scale tiles and every object grown to match.
+   *
+   * @param scale The number of tiles each tile of the base map should cover in each direction
+   * @return A map that can be modified without affecting any other world
+   * */
+  private static TiledMap copyBaseMap(int scale) {
+    TiledMap baseMap = getBaseMap();
+    TiledMap copy = new TiledMap();
+    copy.getTileSets().addTileSet(getTileset());
+
+    // Copying iterates the base map, which may be happening on several threads at once
+    synchronized (baseMap) {
+      copy.getProperties().putAll(baseMap.getProperties());
+      MapLayers baseLayers = baseMap.getLayers();
+      for (int i = 0; i < baseLayers.getCount(); i++) {
+        MapLayer layer = baseLayers.get(i);
+        MapLayer layerCopy;
+        if (layer instanceof TiledMapTileLayer) {
+          if (scale == 1 && !Arrays.asList(MUTABLE_LAYERS).contains(layer.getName())) {
+            copy.getLayers().add(layer);
+            continue;
+          }
+          TiledMapTileLayer baseLayer = (TiledMapTileLayer) layer;
+          TiledMapTileLayer tileLayerCopy = new TiledMapTileLayer(baseLayer.getWidth() * scale,
+              baseLayer.getHeight() * scale, baseLayer.getTileWidth(), baseLayer.getTileHeight());
+          for (int y = 0; y < tileLayerCopy.getHeight(); y++) {
+            for (int x = 0; x < tileLayerCopy.getWidth(); x++) {
+              tileLayerCopy.setCell(x, y, baseLayer.getCell(x / scale, y / scale));
+            }
+          }
+          layerCopy = tileLayerCopy;
+        } else {
+          layerCopy = new MapLayer();
+          MapObjects objects = layer.getObjects();
+          for (int j = 0; j < objects.getCount(); j++) {
+            MapObject object = objects.get(j);
+            if (scale > 1 && object instanceof RectangleMapObject) {
+              object = scaleObject((RectangleMapObject) object, scale);
+            }
+            layerCopy.getObjects().add(object);
+          }
+        }
+        layerCopy.setName(layer.getName());
+        layerCopy.setVisible(layer.isVisible());
+        layerCopy.setOpacity(layer.getOpacity());
+        layerCopy.setOffsetX(layer.getOffsetX());
+        layerCopy.setOffsetY(layer.getOffsetY());
+        layerCopy.getProperties().putAll(layer.getProperties());
+        copy.getLayers().add(layerCopy);
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * Use an already loaded map as the map every world is copied from, such as one loaded in the
+   * background by the game's {@link Assets}. This must be called before any world is created.
+   *
+   * @param map The map to use
+   * */
+  public static synchronized void setBaseMap(TiledMap map) {
+    baseMap = map;
+    tileset = map.getTileSets().getTileSet(0);
+  }
+
+  /**
+   * Get the map every world is copied from, loading it from disk the first time it is needed if
+   * it hasn't been set with {@link World#setBaseMap(TiledMap)}.
+   *
+   * @return The base map, which must never be modified
+   * */
+  public static synchronized TiledMap getBaseMap() {
+    if (baseMap == null) {
+      setBaseMap(new TmxMapLoader().load(Assets.MAP));
+    }
+    return baseMap;
+  }
+
+  public static synchronized TiledMapTileSet getTileset() {
+    getBaseMap();
+    return tileset;
+  }
+
+  /**
+   * Get the bundle for a map of the given scale, the first time it is needed loading it from
+   * {@link MapBundle#FILE} for the base map, or compiling it from the map for larger ones.
+   * Bundles never change, so the same one is shared by every world.
+   *
+   * @param scale The number of tiles each tile of the map covers in each direction
+   * @param map A map of that scale
+   * @return The bundle for the map
+   * */
+  private static MapBundle getMapBundle(int scale, TiledMap map) {
+    synchronized (mapBundles) {
+      MapBundle bundle = mapBundles.get(scale);
+      if (bundle == null) {
+        bundle = scale == 1 ? loadMapBundle(map) : MapBundle.compile(map);
+        mapBundles.put(scale, bundle);
+      }
+      return bundle;
+    }
+  }
+
+  /**
+   * Load the base map's bundle, falling back to compiling it if the file is missing or was
+   * compiled from a different map.
+   *
+   * @param map A copy of the base map
+   * @return The bundle for the base map
+   * */
+  private static MapBundle loadMapBundle(TiledMap map) {
+    FileHandle file = Gdx.files.internal(MapBundle.FILE);
+    if (file.exists()) {
+      try {
+        MapBundle bundle = MapBundle.load(file);
+        if (bundle.matches(map)) {
+          return bundle;
+        }
+      } catch (GdxRuntimeException e) {
+        Gdx.app.error("World", "Failed to load " + MapBundle.FILE, e);
+      }
+      Gdx.app.error("World", MapBundle.FILE + " is out of date, rebuild it with compileMapBundle");
+    }
+    return MapBundle.compile(map);
+  }
+
+  /**
+   * Create a copy of an object for a map scaled up by {@link World#copyBaseMap(int)}.
+   *
+   * @param object The object on the base map
+   * @param scale The scale of the new map
+   * @return A copy of the object covering the scaled up tiles
+   * */
+  private static RectangleMapObject scaleObject(RectangleMapObject object, int scale) {
+    Rectangle rectangle = object.getRectangle();
+    float tileHeight = getBaseMap().getProperties().get("tileheight", Integer.class);
+    // Objects sit a tile below the system tile they belong to, so keep them a single tile below
+    // the bottom of the scaled up system rather than scaling that gap as well
+    RectangleMapObject scaled = new RectangleMapObject(rectangle.x * scale,
+        (rectangle.y + tileHeight) * scale - tileHeight,
+        rectangle.width * scale, rectangle.height * scale);
+    scaled.setName(object.getName());
+    scaled.getProperties().putAll(object.getProperties());
+    return scaled;
+  }
+
+  /**
+   * Queue the infiltrators, civilians and power ups for a new game to be added to the world.
+   * */
+  public void spawnEntities() {
+    for (int i = 0; i < MAX_INFILTRATORS_IN_GAME; i++) {
+      queueEntityAdd(new Infiltrator(this));
+      infiltratorsAddedCount++;
+    }
+    for (int i = 0; i < NPC_COUNT; i++) {
+      queueEntityAdd(new Civilian(this));
+    }
+
+    for (int i = 0; i < POWER_UP_COUNT; i++) {
+      queueEntityAdd(new PowerUp(this));
+    }
+  }
 
   public void addEntity(GameEntity entity) {
     entities.add(entity);
+    trackEntity(entity);
+  }
+
+  /**
+   * Start tracking a newly added entity in the lists of entities to update.
+   *
+   * @param entity The entity that has been added
+   * */
+  private void trackEntity(GameEntity entity) {
+    if (entity instanceof Npc) {
+      Npc npc = (Npc) entity;
+      if (npc instanceof Infiltrator && npc.aiEnabled) {
+        infiltratorCount++;
+      }
+      wakeNpc(npc);
+    } else {
+      tickingEntities.add(entity);
+    }
+  }
+
+  /**
+   * Add an NPC to the list of NPCs updated every tick, if it has anything to do. Must be called
+   * whenever something outside of the NPC's own update, such as a timer or being shot, changes
+   * what it is doing.
+   *
+   * @param npc The NPC to wake
+   * */
+  public void wakeNpc(Npc npc) {
+    if (!npc.awake && npc.needsUpdate()) {
+      npc.awake = true;
+      awakeNpcs.add(npc);
+    }
+  }
+
+  /**
+   * Get the NPCs that are updated every tick.
+   *
+   * @return The NPCs that are awake
+   * */
+  public List<Npc> getAwakeNpcs() {
+    return awakeNpcs;
+  }
+
+  /**
+   * Remove any NPCs with nothing left to do from the list of NPCs updated every tick.
+   * */
+  private void putIdleNpcsToSleep() {
+    int awakeCount = 0;
+    for (int i = 0; i < awakeNpcs.size(); i++) {
+      Npc npc = awakeNpcs.get(i);
+      if (npc.needsUpdate()) {
+        awakeNpcs.set(awakeCount++, npc);
+      } else {
+        npc.awake = false;
+        settlingNpcs.add(npc);
+      }
+    }
+    awakeNpcs.subList(awakeCount, awakeNpcs.size()).clear();
   }
 
   public List<GameEntity> getEntities() {
@@ -362,88 +935,57 @@ public class World {
    * Apply any queued entity removals/additions to the world.
    * */
   public void updateEntities() {
-    entities.addAll(newEntities);
-    entities.removeAll(oldEntities);
+    for (GameEntity entity : newEntities) {
+      addEntity(entity);
+    }
+    if (!oldEntities.isEmpty()) {
+      // Entities compare by identity, so a hash set makes removal linear in the entity count
+      HashSet<GameEntity> removedEntities = new HashSet<>(oldEntities);
+      entities.removeAll(removedEntities);
+      tickingEntities.removeAll(removedEntities);
+      awakeNpcs.removeAll(removedEntities);
+      settlingNpcs.removeAll(removedEntities);
+    }
     newEntities.clear();
     oldEntities.clear();
   }
 
   /**
-   * Update the sprite of a system to match a new state.
+   * Change the state of a system. The system's tiles are redrawn by the registry's listeners.
+   * Coordinates that aren't a system's are ignored.
    *
    * @param x The x coordinate of the system object (not the tile)
    * @param y The y coordinate of the system object (not the tile)
    * @param newState The new state of the system
    **/
   public void updateSystemState(float x, float y, SystemStates newState) {
-    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) World.map.getLayers()
-        .get("collision_layer");
+    int id = systemRegistry.findId(x, y);
+    if (id != -1) {
+      systemRegistry.setState(id, newState);
+    }
+  }
 
-    int[] systemPosition = {
-      (int) x / collisionLayer.getTileWidth(),
-      (int) (y / collisionLayer.getTileHeight()) + 1
-      };
+  public void updateSystemState(RectangleMapObject system, SystemStates newState) {
+    updateSystemState(system.getRectangle().x, system.getRectangle().y, newState);
+  }
 
-    Cell attackedSystemCell = collisionLayer.getCell(systemPosition[0], systemPosition[1]);
-    int targetTileId = attackedSystemCell.getTile().getId();
-
-    if (targetTileId == World.Tiles.STANDALONE_SYSTEM.tileId
-        || targetTileId == World.Tiles.STANDALONE_SYSTEM_ATTACKED.tileId
-        || targetTileId == World.Tiles.STANDALONE_SYSTEM_DESTROYED.tileId) {
-      Cell newSystem;
-      Cell newSystemLight;
-
-      switch (newState) {
-        case WORKING:
-          newSystem = World.Tiles.STANDALONE_SYSTEM.getCell();
-          newSystemLight = World.Tiles.STANDALONE_SYSTEM_LIGHT.getCell();
-          break;
-        case ATTACKED:
-          newSystem = World.Tiles.STANDALONE_SYSTEM_ATTACKED.getCell();
-          newSystemLight = World.Tiles.STANDALONE_SYSTEM_LIGHT_ATTACKED.getCell();
-          break;
-        case DESTROYED:
-          newSystem = World.Tiles.STANDALONE_SYSTEM_DESTROYED.getCell();
-          newSystemLight = World.Tiles.STANDALONE_SYSTEM_LIGHT_DESTROYED.getCell();
-          break;
-        default:
-          // This line will never fire, However it needs to be here otherwise Java
-          // will think that theres a chance newSystem and newSystemLight may not have been
-          // initiated even though every enum state is covered
-          return;
-      }
-      collisionLayer.setCell(systemPosition[0], systemPosition[1], newSystem);
+  /**
+   * Redraw the tiles of a system to match its state.
+   *
+   * @param id The id of the system in {@link World#systemRegistry}
+   * @param state The state to draw
+   * */
+  private void drawSystemTiles(int id, SystemStates state) {
+    int x = systemRegistry.getTileX(id);
+    int y = systemRegistry.getTileY(id);
+    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) map.getLayers()
+        .get("collision_layer");
+    collisionLayer.setCell(x, y, systemRegistry.getSystemCell(id, state));
 
+    if (systemRegistry.isStandalone(id)) {
       TiledMapTileLayer foregroundLayer = (TiledMapTileLayer) map.getLayers()
           .get("foreground_layer");
-      foregroundLayer.setCell(systemPosition[0], systemPosition[1] + 1, newSystemLight);
-    } else {
-      Cell newSystem;
-      switch (newState) {
-        case WORKING:
-          newSystem = World.Tiles.WALL_SYSTEM.getCell();
-          break;
-        case ATTACKED:
-          newSystem = World.Tiles.WALL_SYSTEM_ATTACKED.getCell();
-          break;
-        case DESTROYED:
-          newSystem = World.Tiles.WALL_SYSTEM_DESTROYED.getCell();
-          break;
-        default:
-          // See above
-          return;
-      }
-      collisionLayer.setCell(systemPosition[0], systemPosition[1], newSystem);
-    }
-
-    if (newState == SystemStates.DESTROYED) {
-      for (RectangleMapObject system : systems) {
-        if (system.getRectangle().getX() == x
-            && system.getRectangle().getY() == y) {
-          systems.remove(system);
-          break;
-        }
-      }
+      foregroundLayer.setCell(x, y + 1, systemRegistry.getLightCell(state));
     }
   }
 
@@ -453,41 +995,15 @@ public class World {
    * @param x The x coordinate to check
    * @param y The y coordinate to check
    * @return A {@link SystemStates} representing the state of the system
-   * @throws IllegalArgumentException if a standalone system light is at the coordinates provided
+   * @throws IllegalArgumentException if there is no system object at the coordinates provided
    * */
   public SystemStates getSystemState(float x, float y) {
-    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) World.map.getLayers()
-        .get("collision_layer");
-
-    int[] systemPosition = {
-      (int) x / collisionLayer.getTileWidth(),
-      (int) (y / collisionLayer.getTileHeight()) + 1
-      };
-
-    Cell attackedSystemCell = collisionLayer.getCell(systemPosition[0], systemPosition[1]);
-    if (attackedSystemCell == null) {
-      throw new IllegalArgumentException("No tile at given coordinates");
-    }
-
-    Tiles targetTile = Tiles.getTileById(attackedSystemCell.getTile().getId());
-
-    switch (targetTile) {
-      case WALL_SYSTEM:
-      case STANDALONE_SYSTEM:
-        return SystemStates.WORKING;
-
-      case WALL_SYSTEM_ATTACKED:
-      case STANDALONE_SYSTEM_ATTACKED:
-        return SystemStates.ATTACKED;
-
-      case WALL_SYSTEM_DESTROYED:
-      case STANDALONE_SYSTEM_DESTROYED:
-        return SystemStates.DESTROYED;
-
-      default:
-        throw new IllegalArgumentException("Use the coordinates of the System object on the"
-                                           .concat("tilemap - not the system tile."));
+    int id = systemRegistry.findId(x, y);
+    if (id == -1) {
+      throw new IllegalArgumentException("Use the coordinates of the System object on the"
+                                         .concat("tilemap - not the system tile."));
     }
+    return systemRegistry.getState(id);
   }
 
   public SystemStates getSystemState(RectangleMapObject system) {
@@ -495,18 +1011,23 @@ public class World {
   }
 
   /**
-   * Check to see if any of the end conditions have been met, if so update the screen.
+   * Check to see if any of the end conditions have been met. The world has no knowledge of
+   * screens, it is up to the caller to act upon the result.
+   *
+   * @return {@link EndStates#RUNNING} if the game is still in progress, otherwise whether the
+   *     player won or lost
    * */
-  public void checkForEndState() {
+  public EndStates getEndState() {
+    // The infiltrator count is only known once a tick has been simulated
+    if (tick == 0) {
+      return EndStates.RUNNING;
+    }
     if (systems.isEmpty()) {
-      if (!demoMode) {
-        game.setScreen(new GameOverScreen(game, false));
-      } else {
-        game.setScreen(new GameScreen(game, true, false, difficulty));
-      }
+      return EndStates.LOST;
     } else if (infiltratorCount <= 0) {
-      game.setScreen(new GameOverScreen(game, true));
+      return EndStates.WON;
     }
+    return EndStates.RUNNING;
   }
 
 }
@@ -2,17 +2,16 @@ package com.threecubed.auber.entities;
 
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.maps.MapLayer;
-import com.badlogic.gdx.maps.MapObject;
-import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
-import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.threecubed.auber.World;
+import com.threecubed.auber.rendering.EffectRenderer;
 
 
 /**
@@ -26,7 +25,14 @@ import com.threecubed.auber.World;
  * @since 1.0
  * */
 public abstract class GameEntity {
-  public Sprite sprite;
+  /** The texture the entity is drawn with, shared with every entity that looks the same. */
+  public TextureRegion region;
+  /** The width of the entity, in world units. */
+  public final float width;
+  /** The height of the entity, in world units. */
+  public final float height;
+  /** Whether the entity should be drawn. */
+  public boolean visible = true;
 
   public float speed = 0.4f;
   public float maxSpeed = 2.5f;
@@ -36,43 +42,96 @@ public abstract class GameEntity {
   public Vector2 position;
   public Vector2 velocity;
   public float rotation = 0f;
+  /** The position of the entity at the end of the previous simulation tick. */
+  public Vector2 previousPosition;
+  /** The rotation of the entity at the end of the previous simulation tick. */
+  public float previousRotation = 0f;
   //1=Civilian, 2=Infiltrator, 3=Player, 4=Projectile, 5=PowerUp
   public int entityType;
 
   private float[][] collisionOffsets;
+  private final Rectangle bounds = new Rectangle();
 
   /**
    * Initialise a game entity at a given x and y coordinates.
    *
    * @param x The x coordinate of the entity
    * @param y The y coordinate of the entity
-   * @param sprite The sprite the entity should use
+   * @param region The texture the entity should be drawn with
    * */
-  public GameEntity(float x, float y, Sprite sprite) {
-    this.sprite = sprite; 
-    sprite.setOriginCenter();
+  public GameEntity(float x, float y, TextureRegion region) {
+    this.region = region;
+    width = region.getRegionWidth();
+    height = region.getRegionHeight();
 
     position = new Vector2(x, y);
+    previousPosition = new Vector2(x, y);
     velocity = new Vector2(0, 0);
 
     collisionOffsets = new float[][] {
         {2f, 2f},
-        {sprite.getWidth() - 2f, 2f},
-        {2f, sprite.getHeight() - 2f},
-        {sprite.getWidth() - 2f, sprite.getHeight() - 2f}
+        {width - 2f, 2f},
+        {2f, height - 2f},
+        {width - 2f, height - 2f}
       };
   }
 
   /**
-   * Render the entity at its current coordinates with its current rotation.
+   * Render the entity between its previous and current state, with the given interpolation
+   * factor.
    *
-   * @param batch The batch to draw the sprite to
+   * @param batch The batch to draw the entity to
    * @param camera The world's camera
+   * @param alpha How far between the previous and current tick to render the entity, from 0 to 1
    * */
-  public void render(Batch batch, Camera camera) {
-    sprite.setRotation(rotation);
-    sprite.setPosition(position.x, position.y);
-    sprite.draw(batch);
+  public void render(Batch batch, Camera camera, float alpha) {
+    if (!visible) {
+      return;
+    }
+    // The batch transforms the region straight into its own vertex buffer, so entities don't
+    // need to keep vertices of their own
+    batch.draw(region, getInterpolatedX(alpha), getInterpolatedY(alpha), width / 2, height / 2,
+        width, height, 1f, 1f, MathUtils.lerpAngleDeg(previousRotation, rotation, alpha));
+  }
+
+  /**
+   * Render any effects belonging to the entity, such as rays, beneath every entity. Entities
+   * have no effects unless they override this.
+   *
+   * @param batch The batch to draw the effects to
+   * @param effects The renderer to draw effects with
+   * @param alpha How far between the previous and current tick to render the effects, from 0 to 1
+   * */
+  public void renderEffects(Batch batch, EffectRenderer effects, float alpha) {
+  }
+
+  /**
+   * Store the current position and rotation of the entity, should be called at the start of
+   * every simulation tick.
+   * */
+  public void storePreviousState() {
+    previousPosition.set(position);
+    previousRotation = rotation;
+  }
+
+  /**
+   * Get the x coordinate of the entity interpolated between the previous and current tick.
+   *
+   * @param alpha The interpolation factor, from 0 to 1
+   * @return The interpolated x coordinate
+   * */
+  public float getInterpolatedX(float alpha) {
+    return previousPosition.x + (position.x - previousPosition.x) * alpha;
+  }
+
+  /**
+   * Get the y coordinate of the entity interpolated between the previous and current tick.
+   *
+   * @param alpha The interpolation factor, from 0 to 1
+   * @return The interpolated y coordinate
+   * */
+  public float getInterpolatedY(float alpha) {
+    return previousPosition.y + (position.y - previousPosition.y) * alpha;
   }
 
   /**
@@ -89,8 +148,12 @@ public abstract class GameEntity {
    *
    * @param velocity The entity's current velocity
    * @param map The tilemap to test for collisions on
+   * @param tickScale The amount to scale the velocity and friction by for the current tick rate
    * */
-  public void move(Vector2 velocity, TiledMap map) {
+  public void move(Vector2 velocity, TiledMap map, float tickScale) {
+    // Resolve collisions against the distance travelled this tick rather than the velocity
+    velocity.scl(tickScale);
+
     TiledMapTileLayer collisionLayer = (TiledMapTileLayer) map.getLayers().get("collision_layer");
 
     // Store the direction of the velocity. More efficient than calling function multiple times,
@@ -127,28 +190,17 @@ public abstract class GameEntity {
     }
 
     position.add(velocity);
-    velocity.scl(friction);
+    velocity.scl((float) Math.pow(friction, tickScale) / tickScale);
   }
 
   /**
    * Return any interactable objects on the entities position.
    *
-   * @param map The game world map
+   * @param world The game world
    * @return A {@link RectangleMapObject} on the entities position
    * */
-  public RectangleMapObject getNearbyObjects(TiledMap map) {
-    MapLayer interactionLayer = map.getLayers().get("object_layer");
-    MapObjects objects = interactionLayer.getObjects();
-
-    for (MapObject object : objects) {
-      if (object instanceof RectangleMapObject) {
-        RectangleMapObject rectangularObject = (RectangleMapObject) object;
-        if (Intersector.overlaps(sprite.getBoundingRectangle(), rectangularObject.getRectangle())) {
-          return rectangularObject;
-        }
-      }
-    }
-    return null;
+  public RectangleMapObject getNearbyObjects(World world) {
+    return world.interactions.findOverlapping(getBounds());
   }
 
   /**
@@ -159,21 +211,41 @@ public abstract class GameEntity {
    * @return A boolean dictating whether the entity is visible by the world's camera
    * */
   public boolean entityOnScreen(World world) {
-    float halfWidth = world.camera.viewportWidth / 2;
-    float halfHeight = world.camera.viewportHeight / 2;
-    return (position.x + sprite.getWidth() > world.camera.position.x - halfWidth
-            && position.y + sprite.getHeight() > world.camera.position.y - halfHeight
+    return entityNearScreen(world, 0f);
+  }
+
+  /**
+   * Check if the {@link GameEntity} is within a given distance of the area visible on-screen.
+   *
+   * @param world The game world
+   * @param margin The distance around the edge of the screen to include, in world units
+   * @return A boolean dictating whether the entity is within the margin of the world's camera
+   * */
+  public boolean entityNearScreen(World world, float margin) {
+    float halfWidth = world.camera.viewportWidth / 2 + margin;
+    float halfHeight = world.camera.viewportHeight / 2 + margin;
+    return (position.x + width > world.camera.position.x - halfWidth
+            && position.y + height > world.camera.position.y - halfHeight
             && position.x < world.camera.position.x + halfWidth
             && position.y < world.camera.position.y + halfHeight);
   }
 
+  /**
+   * Get the bounding rectangle of the entity at its simulated position.
+   *
+   * @return A {@link Rectangle} around the entity, reused between calls
+   * */
+  public Rectangle getBounds() {
+    return bounds.set(position.x, position.y, width, height);
+  }
+
   /**
    * Get the x coordinate of the center of an entity.
    *
    * @return The y coordinate at the center of the entity
    * */
   public float getCenterX() {
-    return position.x + (sprite.getWidth() / 2);
+    return position.x + (width / 2);
   }
 
   /**
@@ -182,7 +254,7 @@ public abstract class GameEntity {
    * @return The y coordinate at the center of the entity
    * */
   public float getCenterY() {
-    return position.y + (sprite.getHeight() / 2);
+    return position.y + (height / 2);
   }
 
   /**
@@ -1,11 +1,9 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.math.Circle;
-import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer.Task;
 import com.threecubed.auber.Utils;
 import com.threecubed.auber.World;
 
@@ -20,7 +18,14 @@ import com.threecubed.auber.World;
  * */
 public class Infiltrator extends Npc {
   public boolean exposed = false;
-  Sprite unexposedSprite;
+  TextureRegion unexposedRegion;
+  /** The system currently being sabotaged. */
+  private RectangleMapObject sabotagedSystem;
+
+  /** Timer event fired when a system has been sabotaged for long enough to be destroyed. */
+  private static final int SYSTEM_DESTROYED_EVENT = 1;
+  /** Timer event fired periodically while exposed, to shoot at the player. */
+  private static final int FIRE_PROJECTILE_EVENT = 2;
 
   /**
    * Initialise an infiltrator at given coordinates.
@@ -33,7 +38,7 @@ public class Infiltrator extends Npc {
     super(x, y, world);
     setEntityType(2);
     navigateToRandomSystem(world);
-
+    unexposedRegion = region;
   }
 
   /**
@@ -44,7 +49,7 @@ public class Infiltrator extends Npc {
   public Infiltrator(World world) {
     super(world);
     navigateToRandomSystem(world);
-    unexposedSprite = new Sprite(sprite);
+    unexposedRegion = region;
     setEntityType(2);
   }
 
@@ -53,10 +58,16 @@ public class Infiltrator extends Npc {
     super.update(world);
     if (exposed && !entityOnScreen(world)) {
       exposed = false;
-      sprite = unexposedSprite;
+      region = unexposedRegion;
     }
   }
 
+  @Override
+  public boolean needsUpdate() {
+    // Exposed infiltrators need to check whether they have gone off-screen
+    return super.needsUpdate() || exposed;
+  }
+
   @Override
   public void handleDestinationReached(World world) {
     States oldState = state;
@@ -77,10 +88,9 @@ public class Infiltrator extends Npc {
   @Override
   public void handleTeleporterShot(final World world) {
     if (state == States.ATTACKING_SYSTEM) {
-      RectangleMapObject system = getNearbyObjects(World.map);
+      RectangleMapObject system = getNearbyObjects(world);
       if (system != null) {
-        Rectangle boundingBox = system.getRectangle();
-        world.updateSystemState(boundingBox.x, boundingBox.y, World.SystemStates.WORKING);
+        world.updateSystemState(system, World.SystemStates.WORKING);
       }
     }
 
@@ -97,47 +107,64 @@ public class Infiltrator extends Npc {
               World.BRIG_BOUNDS[0][0], World.BRIG_BOUNDS[1][0]);
       position.y = Utils.randomFloatInRange(world.randomNumberGenerator,
               World.BRIG_BOUNDS[0][1], World.BRIG_BOUNDS[1][1]);
+      if (aiEnabled) {
+        world.infiltratorCount--;
+      }
       aiEnabled = false;
+      // Brigged infiltrators can't sabotage or shoot
+      world.timers.cancel(this);
     } else {
       exposed = true;
       fireProjectileAtPlayer(world);
-      sprite = world.atlas.createSprite("infiltrator");
+      region = world.regions.getRegion("infiltrator");
       state = States.FLEEING;
       navigateToFurthestPointFromPlayer(world);
-      npcTimer.scheduleTask(new Task() {
-        @Override
-        public void run() {
-          if (exposed) {
-            fireProjectileAtPlayer(world);
-          } else {
-            cancel();
-          }
+      world.timers.schedule(this, FIRE_PROJECTILE_EVENT, World.INFILTRATOR_FIRING_INTERVAL,
+          World.INFILTRATOR_FIRING_INTERVAL);
+    }
+    // Exposed infiltrators are updated every tick until they are out of sight
+    world.wakeNpc(this);
+  }
+
+  @Override
+  public void onTimer(int event, World world) {
+    switch (event) {
+      case SYSTEM_DESTROYED_EVENT:
+        if (aiEnabled) {
+          world.updateSystemState(sabotagedSystem, World.SystemStates.DESTROYED);
+          navigateToRandomSystem(world);
+          world.wakeNpc(this);
         }
-      }, World.INFILTRATOR_FIRING_INTERVAL, World.INFILTRATOR_FIRING_INTERVAL);
+        break;
+      case FIRE_PROJECTILE_EVENT:
+        if (exposed) {
+          fireProjectileAtPlayer(world);
+        } else {
+          world.timers.cancel(this, FIRE_PROJECTILE_EVENT);
+        }
+        break;
+      default:
+        super.onTimer(event, world);
+        break;
     }
   }
 
   /**
    * Attack a system nearby to the infiltrator.
    * */
-  private void attackNearbySystem(final World world) {
+  private void attackNearbySystem(World world) {
     state = States.ATTACKING_SYSTEM;
 
-    final RectangleMapObject system = getNearbyObjects(World.map);
+    RectangleMapObject system = getNearbyObjects(world);
     if (system != null) {
-      world.updateSystemState(system.getRectangle().getX(), system.getRectangle().getY(),
-          World.SystemStates.ATTACKED);
-
-      npcTimer.scheduleTask(new Task() {
-        @Override
-        public void run() {
-          if (aiEnabled) {
-            world.updateSystemState(system.getRectangle().getX(), system.getRectangle().getY(),
-                World.SystemStates.DESTROYED);
-            navigateToRandomSystem(world);
-          }
-        }
-      }, world.SYSTEM_BREAK_TIME);
+      world.updateSystemState(system, World.SystemStates.ATTACKED);
+
+      sabotagedSystem = system;
+      world.timers.schedule(this, SYSTEM_DESTROYED_EVENT, world.SYSTEM_BREAK_TIME);
+    } else {
+      // Nothing to sabotage here, carry on rather than waiting forever
+      state = States.IDLE;
+      idleForGivenTime(world, Utils.randomFloatInRange(world.randomNumberGenerator, 5f, 8f));
     }
   }
 
@@ -145,10 +172,9 @@ public class Infiltrator extends Npc {
   public void navigateToNearestFleepoint(final World world) {
     if (aiEnabled) {
       if (state == States.ATTACKING_SYSTEM) {
-        RectangleMapObject system = getNearbyObjects(World.map);
+        RectangleMapObject system = getNearbyObjects(world);
         if (system != null) {
-          Rectangle boundingBox = system.getRectangle();
-          world.updateSystemState(boundingBox.x, boundingBox.y, World.SystemStates.WORKING);  
+          world.updateSystemState(system, World.SystemStates.WORKING);
         }
       }
       super.navigateToNearestFleepoint(world);
@@ -160,10 +186,10 @@ public class Infiltrator extends Npc {
       return false;
     }
     Circle infiltratorSight = new Circle(position, World.INFILTRATOR_SIGHT_RANGE);
-    if (infiltratorSight.contains(world.player.position)) {
-      return true;
-    }
-    return false;
+    // Infiltrators can't see through walls
+    return infiltratorSight.contains(world.player.position)
+        && world.visibility.pointVisible(getCenterX(), getCenterY(),
+            world.player.getCenterX(), world.player.getCenterY());
   }
 
   private void fireProjectileAtPlayer(World world) {
@@ -171,7 +197,7 @@ public class Infiltrator extends Npc {
                                              world.player.position.y - position.y);
     projectileVelocity.setLength(World.INFILTRATOR_PROJECTILE_SPEED);
     Projectile projectile = new Projectile(getCenterX(), getCenterY(), projectileVelocity, this,
-        Projectile.CollisionActions.randomAction(), world);
+        Projectile.CollisionActions.randomAction(world.randomNumberGenerator), world);
     world.queueEntityAdd(projectile);
   } 
 }
@@ -1,16 +1,15 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
 import com.threecubed.auber.Utils;
 import com.threecubed.auber.World;
 import com.threecubed.auber.pathfinding.NavigationMesh;
+import com.threecubed.auber.timing.TimerCallback;
 import java.util.ArrayList;
-import java.util.Random;
 
 
 /**
@@ -23,11 +22,25 @@ import java.util.Random;
  * @version 1.0
  * @since 1.0
  * */
-public abstract class Npc extends GameEntity {
+public abstract class Npc extends GameEntity implements TimerCallback {
   private ArrayList<Vector2> currentPath = new ArrayList<>();
   private Vector2 targetDirection = new Vector2();
   private NavigationMesh navigationMesh;
 
+  // Intent computed by planStep or planCoarseStep and applied by commitStep
+  /** The tick the intent fields were last planned on. */
+  private long plannedTick = -1;
+  private boolean stepValid = false;
+  private final Vector2 plannedPosition = new Vector2();
+  private float plannedRotation;
+  private int plannedNodesReached;
+  private ArrayList<Vector2> plannedPath;
+  private States plannedState;
+  /** The tick the NPC last moved along its path on. */
+  private long lastStepTick;
+  /** Scratch space for the neighbours found when planning a step. */
+  private final GameEntity[] neighbours = new GameEntity[World.NPC_MAX_NEIGHBOURS];
+
 
   protected float maxSpeed = 1.3f;
 
@@ -44,26 +57,35 @@ public abstract class Npc extends GameEntity {
   }
 
   public boolean aiEnabled = true;
-  protected Timer npcTimer = new Timer();
+  /** Whether the NPC is idle waiting for a deferred path request to be answered. */
+  public boolean awaitingPath = false;
+  /**
+   * Whether the NPC is in the world's list of NPCs updated every tick. Only the world should
+   * change this, see {@link World#wakeNpc(Npc)}.
+   * */
+  public boolean awake = false;
+
+  /** Timer event fired when the NPC should stop idling or fleeing and navigate to a system. */
+  protected static final int RESUME_NAVIGATION_EVENT = 0;
 
   /**
    * Initialise an NPC with a given texture.
    *
    * @param x The x coordinate to initialise the NPC at
    * @param y The y coordinate to initialise the NPC at
-   * @param sprite The NPC sprite
-   * @param navigationMesh The navigation mesh.
+   * @param region The texture the NPC is drawn with
+   * @param world The game world
    * */
-  public Npc(float x, float y, Sprite sprite, NavigationMesh navigationMesh) {
-    super(x, y, sprite);
-    Random rng = new Random(); // TODO: Switch to use the world RNG
-    maxSpeed *= Utils.randomFloatInRange(rng, World.NPC_SPEED_VARIANCE[0],
-        World.NPC_SPEED_VARIANCE[1]);
-    this.navigationMesh = navigationMesh;
+  public Npc(float x, float y, TextureRegion region, World world) {
+    super(x, y, region);
+    maxSpeed *= Utils.randomFloatInRange(world.randomNumberGenerator,
+        World.NPC_SPEED_VARIANCE[0], World.NPC_SPEED_VARIANCE[1]);
+    this.navigationMesh = world.navigationMesh;
+    lastStepTick = world.tick;
   }
 
   /**
-   * Initialise an NPC with a random NPC sprite.
+   * Initialise an NPC with a random NPC texture.
    *
    * @param x The x coordinate to initialise the NPC at
    * @param y The y coordinate to initialise the NPC at
@@ -71,10 +93,10 @@ public abstract class Npc extends GameEntity {
    * */
   public Npc(float x, float y, World world) {
     this(x, y,
-        world.atlas.createSprite(
+        world.regions.getRegion(
           textureNames[Utils.randomIntInRange(world.randomNumberGenerator, 0,
             textureNames.length - 1)]),
-        world.navigationMesh);
+        world);
   }
 
   /**
@@ -93,45 +115,201 @@ public abstract class Npc extends GameEntity {
    * @param world The game world
    * */
   protected void stepTowardsTarget(World world) {
-    if (aiEnabled) {
-      Vector2 targetCoordinates = currentPath.get(0);
-      Vector2 currentDirection = getCurrentDirection();
+    if (plannedTick != world.tick) {
+      planStep(world);
+    }
+    commitStep(world);
+  }
+
+  /**
+   * Work out where the NPC will step to this tick without changing any shared state. Only the
+   * NPC's own intent fields are written, so this may be run for many NPCs in parallel. Any other
+   * entity should only be read through its {@link GameEntity#previousPosition}.
+   *
+   * @param world The game world
+   * */
+  void planStep(World world) {
+    plannedTick = world.tick;
+    stepValid = false;
+    if (!aiEnabled || (state != States.NAVIGATING && state != States.FLEEING)
+        || currentPath.isEmpty()) {
+      return;
+    }
+    Vector2 targetCoordinates = currentPath.get(0);
+    float directionX = Math.signum(targetCoordinates.x - position.x);
+    float directionY = Math.signum(targetCoordinates.y - position.y);
+
+    // Rotate the entity to face the direction its heading
+    plannedRotation = new Vector2(directionX, directionY).angleDeg();
+    plannedPosition.set(position);
+
+    float stepLength = getStepLength(world);
+    boolean entityMoved = false;
+    if (directionX == targetDirection.x && targetDirection.x != 0) {
+      plannedPosition.x += directionX * stepLength;
+      entityMoved = true;
+    }
+    if (directionY == targetDirection.y && targetDirection.y != 0) {
+      plannedPosition.y += directionY * stepLength;
+      entityMoved = true;
+    }
 
-      // Rotate the entity to face the direction its heading
-      rotation = currentDirection.angleDeg();
+    // If the entity hasn't moved, it must have reached its target node
+    plannedNodesReached = entityMoved ? 0 : 1;
+    if (entityMoved) {
+      steerAwayFromNeighbours(world, stepLength);
+    }
+    markStepValid();
+  }
 
-      boolean entityMoved = false;
-      if (currentDirection.x == targetDirection.x && targetDirection.x != 0) {
-        float velocityX = Math.signum(targetCoordinates.x - position.x) * maxSpeed;
-        if (state == States.FLEEING) {
-          velocityX *= World.NPC_FLEE_MULTIPLIER;
-        }
-        position.x += velocityX;
-        entityMoved = true;
+  /**
+   * Push the planned position away from nearby NPCs and the player, so that crowds spread out
+   * rather than walking through each other. Only a bounded number of neighbours are considered,
+   * and they are read at their position from the start of the tick, so this is safe to run in
+   * parallel with other NPCs planning. The push is dropped if it would take the NPC off the
+   * navigation mesh, the path itself is left alone.
+   *
+   * @param world The game world
+   * @param stepLength The distance the NPC moves along each axis this tick
+   * */
+  private void steerAwayFromNeighbours(World world, float stepLength) {
+    int neighbourCount = world.entityGrid.findNeighbours(this, position.x, position.y,
+        World.NPC_SEPARATION_RADIUS, neighbours);
+
+    float pushX = 0f;
+    float pushY = 0f;
+    for (int i = 0; i < neighbourCount; i++) {
+      GameEntity neighbour = neighbours[i];
+      neighbours[i] = null;
+      if (!(neighbour instanceof Npc || neighbour instanceof Player)) {
+        continue;
+      }
+      float offsetX = position.x - neighbour.previousPosition.x;
+      float offsetY = position.y - neighbour.previousPosition.y;
+      float distance = (float) Math.sqrt(offsetX * offsetX + offsetY * offsetY);
+      if (distance == 0f) {
+        continue;
       }
+      // Push harder the closer the neighbour is
+      float weight = (World.NPC_SEPARATION_RADIUS - distance)
+          / (World.NPC_SEPARATION_RADIUS * distance);
+      pushX += offsetX * weight;
+      pushY += offsetY * weight;
+    }
+    if (pushX == 0f && pushY == 0f) {
+      return;
+    }
 
-      if (currentDirection.y == targetDirection.y && targetDirection.y != 0) {
-        float velocityY = Math.signum(targetCoordinates.y - position.y) * maxSpeed;
-        if (state == States.FLEEING) {
-          velocityY *= World.NPC_FLEE_MULTIPLIER;
-        }
-        position.y += velocityY;
-        entityMoved = true;
+    float pushLength = (float) Math.sqrt(pushX * pushX + pushY * pushY);
+    float maxPush = stepLength * World.NPC_SEPARATION_STRENGTH;
+    if (pushLength > maxPush) {
+      pushX *= maxPush / pushLength;
+      pushY *= maxPush / pushLength;
+    }
+    if (navigationMesh.areaAccessible(plannedPosition.x + pushX + 2f,
+        plannedPosition.y + pushY + 2f, width - 4f, height - 4f)) {
+      plannedPosition.add(pushX, pushY);
+    }
+  }
+
+  /**
+   * Work out where the NPC will be after following its path in a single straight-line jump
+   * covering every tick since it last moved. Used for NPCs nobody can see, where the cost of
+   * stepping every tick is wasted. Like {@link Npc#planStep(World)}, only intent fields are
+   * written.
+   *
+   * @param world The game world
+   * @param interval The number of ticks between coarse steps, the most that one step may cover
+   * */
+  void planCoarseStep(World world, int interval) {
+    plannedTick = world.tick;
+    stepValid = false;
+    if (!aiEnabled || (state != States.NAVIGATING && state != States.FLEEING)
+        || currentPath.isEmpty()) {
+      return;
+    }
+    long elapsedTicks = Math.min(world.tick - lastStepTick, interval);
+    float distance = getStepLength(world) * Math.max(elapsedTicks, 1);
+
+    plannedPosition.set(position);
+    plannedNodesReached = 0;
+    while (plannedNodesReached < currentPath.size()) {
+      Vector2 node = currentPath.get(plannedNodesReached);
+      float nodeDistance = plannedPosition.dst(node);
+      if (nodeDistance > 0f) {
+        plannedRotation = MathUtils.atan2(node.y - plannedPosition.y,
+            node.x - plannedPosition.x) * MathUtils.radiansToDegrees;
       }
+      if (nodeDistance > distance) {
+        plannedPosition.lerp(node, distance / nodeDistance);
+        break;
+      }
+      plannedPosition.set(node);
+      distance -= nodeDistance;
+      plannedNodesReached++;
+    }
+    markStepValid();
+  }
 
-      if (!entityMoved) {
-        // If the entity hasn't moved, it must have reached its target node.
-        // Remove the node and recalculate the current direction to head in.
-        currentPath.remove(0);
-        if (!currentPath.isEmpty()) {
-          targetDirection = getCurrentDirection();
-        } else {
-          state = States.REACHED_DESTINATION;
-        }
+  /**
+   * Mark the intent fields as holding a step for the NPC's current path and state.
+   * */
+  private void markStepValid() {
+    plannedPath = currentPath;
+    plannedState = state;
+    stepValid = true;
+  }
+
+  /**
+   * Skip planning a step this tick, the NPC will stand still until its next step.
+   *
+   * @param world The game world
+   * */
+  void skipStep(World world) {
+    plannedTick = world.tick;
+    stepValid = false;
+  }
+
+  /**
+   * Apply the step worked out when planning. The step is thrown away if the NPC has been given a
+   * new path or state since it was planned, for example by being shot.
+   *
+   * @param world The game world
+   * */
+  void commitStep(World world) {
+    if (!stepValid || !aiEnabled || plannedPath != currentPath || plannedState != state) {
+      return;
+    }
+    stepValid = false;
+    lastStepTick = world.tick;
+
+    position.set(plannedPosition);
+    rotation = plannedRotation;
+    if (plannedNodesReached > 0) {
+      // Remove the reached nodes and recalculate the current direction to head in.
+      currentPath.subList(0, plannedNodesReached).clear();
+      if (!currentPath.isEmpty()) {
+        targetDirection = getCurrentDirection();
+      } else {
+        state = States.REACHED_DESTINATION;
       }
     }
   }
 
+  /**
+   * Get the distance the NPC moves along each axis in a single tick.
+   *
+   * @param world The game world
+   * @return The distance moved per tick, in world units
+   * */
+  private float getStepLength(World world) {
+    float stepLength = maxSpeed * world.getTickScale();
+    if (state == States.FLEEING) {
+      stepLength *= World.NPC_FLEE_MULTIPLIER;
+    }
+    return stepLength;
+  }
+
   /**
    * Navigate to the furthest point from the player.
    *
@@ -189,19 +367,52 @@ public abstract class Npc extends GameEntity {
 
   protected void navigateToRandomSystem(World world) {
     if (!world.systems.isEmpty()) {
-      state = States.NAVIGATING;
-
       RectangleMapObject system = world.systems.get(
               Utils.randomIntInRange(world.randomNumberGenerator,
                       0, world.systems.size() - 1));
       float sysX = system.getRectangle().getX();
       float sysY = system.getRectangle().getY();
 
-      if (world.getSystemState(sysX, sysY) != World.SystemStates.DESTROYED) {
-        updatePath(sysX, sysY, world);
+      if (world.getSystemState(system) != World.SystemStates.DESTROYED) {
+        state = States.NAVIGATING;
+        if (!world.pathRequests.request(this, sysX, sysY, world)) {
+          // Wait where we are until the path has been found
+          state = States.IDLE;
+          awaitingPath = true;
+        }
         return;
       }
     }
+    // Nowhere left to go, don't try to follow an empty path
+    state = States.IDLE;
+  }
+
+  /**
+   * Start following a path that was requested through the {@link World#pathRequests} queue. The
+   * path is ignored if the NPC has found something else to do since asking for it.
+   *
+   * @param x The x coordinate to navigate to
+   * @param y The y coordinate to navigate to
+   * @param world The game world
+   * */
+  public void receivePath(float x, float y, World world) {
+    awaitingPath = false;
+    if (aiEnabled && state == States.IDLE) {
+      state = States.NAVIGATING;
+      updatePath(x, y, world);
+      world.wakeNpc(this);
+    }
+  }
+
+  /**
+   * Check whether the NPC has anything to do each tick. NPCs that don't are left out of the
+   * world's update until a timer or event wakes them with {@link World#wakeNpc(Npc)}.
+   *
+   * @return True if the NPC should be updated every tick
+   * */
+  public boolean needsUpdate() {
+    return aiEnabled && (state == States.NAVIGATING || state == States.FLEEING
+        || state == States.REACHED_DESTINATION);
   }
 
   /**
@@ -231,18 +442,25 @@ public abstract class Npc extends GameEntity {
         );
   }
 
-  protected void idleForGivenTime(final World world, float seconds) {
-    npcTimer.scheduleTask(new Task() {
-      @Override
-      public void run() {
-        if (aiEnabled) {
-          state = States.NAVIGATING;
+  protected void idleForGivenTime(World world, float seconds) {
+    world.timers.schedule(this, RESUME_NAVIGATION_EVENT, seconds);
+  }
 
-          // Pick new system to navigate to
-          navigateToRandomSystem(world);
-        }
-      }
-    }, seconds);
+  /**
+   * Handle any timed events scheduled by the NPC on the world's timing wheel.
+   *
+   * @param event The ID of the event that fired
+   * @param world The game world
+   * */
+  @Override
+  public void onTimer(int event, World world) {
+    if (event == RESUME_NAVIGATION_EVENT && aiEnabled) {
+      state = States.NAVIGATING;
+
+      // Pick new system to navigate to
+      navigateToRandomSystem(world);
+      world.wakeNpc(this);
+    }
   }
 
   /**
@@ -252,6 +470,7 @@ public abstract class Npc extends GameEntity {
    * */
   public void navigateToNearestFleepoint(final World world) {
     state = States.FLEEING;
+    awaitingPath = false;
 
     ArrayList<Float> distances = new ArrayList<>();
     ArrayList<float[]> closestFleePoints = new ArrayList<>();
@@ -288,16 +507,9 @@ public abstract class Npc extends GameEntity {
         );
 
     // Fleeing takes priority over all tasks
-    npcTimer.clear();
-    npcTimer.scheduleTask(new Task() {
-      @Override
-      public void run() {
-        if (aiEnabled) {
-          state = States.NAVIGATING;
-          navigateToRandomSystem(world);
-        }
-      }
-    }, World.NPC_FLEE_TIME);
+    world.timers.cancel(this);
+    world.timers.schedule(this, RESUME_NAVIGATION_EVENT, World.NPC_FLEE_TIME);
+    world.wakeNpc(this);
   }
 
   public States getState() {
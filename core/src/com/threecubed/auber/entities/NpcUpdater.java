@@ -0,0 +1,135 @@
+package com.threecubed.auber.entities;
+
+import com.threecubed.auber.World;
+import com.threecubed.auber.timing.FrameGovernor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Updates the world's NPCs in two phases. In the first, every NPC plans its step for the tick
+ * in parallel, reading other entities only through the state they had at the end of the previous
+ * tick. In the second, {@link World#update()} updates entities in order as it always has, with
+ * each NPC committing its planned step and making any changes to shared state, such as
+ * sabotaging systems or scheduling timers, one at a time. The result is the same no matter how
+ * many threads do the planning.
+ *
+ * <p>NPCs more than {@link World#NPC_LOD_MARGIN} outside the screen are only stepped every
+ * {@link World#NPC_LOD_INTERVAL} ticks, jumping straight along their path, so the cost of
+ * moving NPCs depends on how many can be seen rather than how many there are.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class NpcUpdater {
+  /** Below this many NPCs, planning is cheaper than handing the work to other threads. */
+  public static final int PARALLEL_THRESHOLD = 64;
+  /** The number of NPCs each parallel task plans. */
+  private static final int BATCH_SIZE = 32;
+
+  /** Shared between every world, created when the first world needs it. */
+  private static ForkJoinPool pool;
+
+  private final List<Npc> npcs = new ArrayList<>();
+
+  /**
+   * Plan the step of every awake NPC in the world. Must be called after the previous state of every
+   * entity has been stored and before any entity is updated.
+   *
+   * @param world The game world
+   * */
+  public void planSteps(World world) {
+    npcs.clear();
+    npcs.addAll(world.getAwakeNpcs());
+
+    PlanTask task = new PlanTask(world, 0, npcs.size(),
+        world.governor.isDegraded(FrameGovernor.CIVILIAN_LOD_LEVEL));
+    int skippedCivilianSteps;
+    if (npcs.size() < PARALLEL_THRESHOLD) {
+      skippedCivilianSteps = task.compute();
+    } else if (ForkJoinTask.inForkJoinPool()) {
+      // Already running on a pool, such as when simulating many games at once, so share it
+      // rather than oversubscribing the cores
+      skippedCivilianSteps = task.invoke();
+    } else {
+      skippedCivilianSteps = getPool().invoke(task);
+    }
+    world.governor.skippedCivilianSteps += skippedCivilianSteps;
+  }
+
+  private static synchronized ForkJoinPool getPool() {
+    if (pool == null) {
+      pool = new ForkJoinPool();
+    }
+    return pool;
+  }
+
+  /**
+   * Stop the threads of the shared pool, if it has been created. Should be called once no world
+   * will be updated again, though a world that is updated afterwards will create a new pool.
+   * */
+  public static synchronized void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+  }
+
+  /**
+   * Plans the steps of a range of NPCs, splitting in half until the range is small enough.
+   * Returns the number of civilian steps skipped because of the frame governor.
+   * */
+  private class PlanTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final World world;
+    private final int start;
+    private final int end;
+    private final boolean civilianLod;
+
+    PlanTask(World world, int start, int end, boolean civilianLod) {
+      this.world = world;
+      this.start = start;
+      this.end = end;
+      this.civilianLod = civilianLod;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (end - start > BATCH_SIZE) {
+        int middle = (start + end) >>> 1;
+        PlanTask left = new PlanTask(world, start, middle, civilianLod);
+        left.fork();
+        int skipped = new PlanTask(world, middle, end, civilianLod).compute();
+        return skipped + left.join();
+      }
+
+      int skipped = 0;
+      for (int i = start; i < end; i++) {
+        Npc npc = npcs.get(i);
+        // Under load, civilians only get full steps when they are actually on screen
+        boolean reducedCivilian = civilianLod && npc instanceof Civilian;
+        float margin = reducedCivilian ? 0f : World.NPC_LOD_MARGIN;
+        int interval = reducedCivilian
+            ? World.NPC_LOD_INTERVAL * 2 : World.NPC_LOD_INTERVAL;
+
+        if (npc.entityNearScreen(world, margin)) {
+          npc.planStep(world);
+        } else if ((world.tick + i) % interval == 0) {
+          // Stagger hidden NPCs so that each tick only steps a share of them
+          npc.planCoarseStep(world, interval);
+        } else {
+          npc.skipStep(world);
+          if (reducedCivilian) {
+            skipped++;
+          }
+        }
+      }
+      return skipped;
+    }
+  }
+}
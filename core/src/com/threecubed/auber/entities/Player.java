@@ -1,36 +1,41 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input;
-import com.badlogic.gdx.graphics.Camera;
-import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
-import com.badlogic.gdx.maps.MapObjects;
 import com.badlogic.gdx.maps.MapProperties;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
-import com.threecubed.auber.Utils;
+import com.badlogic.gdx.utils.Array;
 import com.threecubed.auber.World;
+import com.threecubed.auber.input.KeyboardController;
+import com.threecubed.auber.input.PlayerController;
 import com.threecubed.auber.pathfinding.NavigationMesh;
+import com.threecubed.auber.rendering.EffectRenderer;
 import com.threecubed.auber.save.Save;
+import com.threecubed.auber.timing.TimerCallback;
 
 
 /**
- * The player entity that the user controls. Handles keyboard input, and interaction with other
- * entities and tiles in the game world.
+ * The player entity that the user controls. Handles input from its {@link PlayerController}, and
+ * interaction with other entities and tiles in the game world.
  *
  * @author Daniel O'Brien
  * @version 1.0
  * @since 1.0
  * */
-public class Player extends GameEntity {
-  public Timer playerTimer = new Timer();
+public class Player extends GameEntity implements TimerCallback {
+  /** Timer event fired when the teleporter ray should stop rendering. */
+  public static final int RAY_FINISHED_EVENT = 0;
+  /** Timer event fired when the speed boost power-up runs out. */
+  public static final int SPEED_BOOST_EXPIRED_EVENT = 1;
+  /** Timer event fired when the confusion debuff runs out. */
+  public static final int CONFUSION_EXPIRED_EVENT = 2;
+  /** Timer event fired when the slow debuff runs out. */
+  public static final int SLOW_EXPIRED_EVENT = 3;
+  /** Timer event fired when the blindness debuff runs out. */
+  public static final int BLINDNESS_EXPIRED_EVENT = 4;
+
   private Vector2 teleporterRayCoordinates = new Vector2();
 
   /**
@@ -47,11 +52,15 @@ public class Player extends GameEntity {
   public boolean slowed = false;
   public boolean blinded = false;
 
-  private ShapeRenderer rayRenderer = new ShapeRenderer();
+  private final Array<GameEntity> nearbyEntities = new Array<>();
   private World world;
 
+  /** The source of the player's input, the keyboard and mouse unless running headless. */
+  public PlayerController controller = new KeyboardController();
+
   public Player(float x, float y, World world) {
-    super(x, y, world.atlas.createSprite("player"));
+    super(x, y, world.regions.getRegion("player"));
+    this.world = world;
     setEntityType(3);
   }
 
@@ -63,8 +72,13 @@ public class Player extends GameEntity {
   @Override
   public void update(World world) {
     this.world = world;
+    boolean respawn = controller.consumeRespawn();
+    boolean save = controller.consumeSave();
+    boolean interact = controller.consumeInteract();
+
     if (!world.demoMode) {
-      if (Gdx.input.isKeyJustPressed(Input.Keys.Q) || health <= 0) {
+      float tickScale = world.getTickScale();
+      if (respawn || health <= 0) {
         position.set(World.MEDBAY_COORDINATES[0], World.MEDBAY_COORDINATES[1]);
         confused = false;
         slowed = false;
@@ -72,14 +86,14 @@ public class Player extends GameEntity {
       }
 
       //Save while press G
-      if (Gdx.input.isKeyJustPressed(Input.Keys.G)) {
+      if (save) {
         new Save().saveJson(world);
         world.ui.queueMessage("Saved Successfully!");
       }
 
       // Increment Auber's health if in medbay
       if (world.medbay.getRectangle().contains(position.x, position.y)) {
-        health += World.AUBER_HEAL_RATE;
+        health += World.AUBER_HEAL_RATE * tickScale;
         health = Math.min(1f, health);
       }
 
@@ -94,13 +108,9 @@ public class Player extends GameEntity {
       // hence the * 2
       float speedModifier = Math.min(world.auberTeleporterCharge * speed * 2, speed);
 
-      // Get directional input, converted to numbers (True -> 1, False -> 0)
-      int keyPressedUp = (Gdx.input.isKeyPressed(Input.Keys.W)) ? 1 : 0;
-      int keyPressedDn = (Gdx.input.isKeyPressed(Input.Keys.S)) ? 1 : 0;
-      int keyPressedLf = (Gdx.input.isKeyPressed(Input.Keys.A)) ? 1 : 0;
-      int keyPressedRt = (Gdx.input.isKeyPressed(Input.Keys.D)) ? 1 : 0;
       // Use directional inputs to create a vector, then normalise it (direction preserved, length = 1)
-      Vector2 inputResult = new Vector2(keyPressedRt - keyPressedLf, keyPressedUp - keyPressedDn);
+      Vector2 inputResult = new Vector2(controller.getHorizontalInput(),
+          controller.getVerticalInput());
       inputResult.nor();
       // Reverse input if confused
       if(confused) {
@@ -112,7 +122,7 @@ public class Player extends GameEntity {
 
       if(inputResult.len() != 0) {
         // Add the 'speed' (really acceleration) to the vector in the direction defined by inputResult
-        velocity.add(inputResult.scl(speed - speedModifier));
+        velocity.add(inputResult.scl((speed - speedModifier) * tickScale));
 
         // Clamp the length (magnitude) of the velocity to the appropriate max speed
         float maxSpeedActual = maxSpeed;
@@ -123,19 +133,21 @@ public class Player extends GameEntity {
 
         // Final modifiers to speed (debuffs and powerups)
         if (slowed) {
-          velocity.scl(0.5f);
+          // Halved once per reference tick, compounded like friction so it doesn't depend on
+          // the tick rate
+          velocity.scl((float) Math.pow(0.5f, tickScale));
         }
       }
 
       // Decide ahead of time which charge rate to use
       float chargeRateActual;
       if(reduceChargeTime) {
-        chargeRateActual = World.AUBER_CHARGE_RATE_FAST;
+        chargeRateActual = World.AUBER_CHARGE_RATE_FAST * tickScale;
       }else{
-        chargeRateActual = World.AUBER_CHARGE_RATE;
+        chargeRateActual = World.AUBER_CHARGE_RATE * tickScale;
       }
 
-      if (Gdx.input.isButtonPressed(Input.Buttons.LEFT) && teleporterRayCoordinates.isZero()) {
+      if (controller.isFiring() && teleporterRayCoordinates.isZero()) {
         world.auberTeleporterCharge = Math.min(world.auberTeleporterCharge
                 + chargeRateActual, 1f);
       } else {
@@ -148,7 +160,9 @@ public class Player extends GameEntity {
 
           // Scare entities
           teleporterRayCoordinates = handleRayCollisions(world);
-          for (GameEntity entity : world.getEntities()) {
+          world.entityGrid.queryRadius(teleporterRayCoordinates.x, teleporterRayCoordinates.y,
+              World.NPC_EAR_STRENGTH, nearbyEntities);
+          for (GameEntity entity : nearbyEntities) {
             float entityDistance = NavigationMesh.getEuclidianDistance(
                     new float[]{teleporterRayCoordinates.x, teleporterRayCoordinates.y},
                     new float[]{entity.position.x, entity.position.y}
@@ -167,20 +181,15 @@ public class Player extends GameEntity {
             }
           }
 
-          playerTimer.scheduleTask(new Task() {
-            @Override
-            public void run() {
-              teleporterRayCoordinates.setZero();
-            }
-          }, World.AUBER_RAY_TIME);
+          world.timers.schedule(this, RAY_FINISHED_EVENT, World.AUBER_RAY_TIME);
         } else {
           world.auberTeleporterCharge = Math.max(world.auberTeleporterCharge
               - chargeRateActual, 0f);
         }
       }
-      if (Gdx.input.isKeyJustPressed(Input.Keys.E)) {
+      if (interact) {
         // Interact with an object
-        RectangleMapObject nearbyObject = getNearbyObjects(World.map);
+        RectangleMapObject nearbyObject = getNearbyObjects(world);
 
         if (nearbyObject != null) {
           MapProperties properties = nearbyObject.getProperties();
@@ -188,15 +197,13 @@ public class Player extends GameEntity {
 
           switch (type) {
             case "teleporter":
-              MapObjects objects = World.map.getLayers().get("object_layer").getObjects();
-
-              String linkedTeleporterId = properties.get("linked_teleporter", String.class);
-              RectangleMapObject linkedTeleporter = (RectangleMapObject) objects.get(
-                      linkedTeleporterId
-              );
-              velocity.setZero();
-              position.x = linkedTeleporter.getRectangle().getX();
-              position.y = linkedTeleporter.getRectangle().getY();
+              RectangleMapObject linkedTeleporter =
+                  world.interactions.getLinkedTeleporter(nearbyObject);
+              if (linkedTeleporter != null) {
+                velocity.setZero();
+                position.x = linkedTeleporter.getRectangle().getX();
+                position.y = linkedTeleporter.getRectangle().getY();
+              }
               break;
 
             default:
@@ -205,7 +212,7 @@ public class Player extends GameEntity {
         }
       }
 
-      Vector2 mousePosition = Utils.getMouseCoordinates(world.camera);
+      Vector2 mousePosition = controller.getAimCoordinates(world);
 
       // Set the rotation to the angle theta where theta is the angle between the mouse cursor and
       // player position. Correct the player position to be measured from the centre of the sprite.
@@ -215,33 +222,25 @@ public class Player extends GameEntity {
       ) - 90f);
 
       // Move, finally
-      move(velocity, World.map);
+      move(velocity, world.map, tickScale);
     }
   }
 
   /**
-   * Overrides the GameEntity render method to render the player's teleporter raygun, as well
-   * as the player itself.
+   * Overrides the GameEntity renderEffects method to render the player's teleporter raygun.
    *
-   * @param batch  The batch to draw to
-   * @param camera The world's camera
+   * @param batch The batch to draw to
+   * @param effects The renderer to draw the ray with
+   * @param alpha How far between the previous and current tick to render the ray
    */
   @Override
-  public void render(Batch batch, Camera camera) {
+  public void renderEffects(Batch batch, EffectRenderer effects, float alpha) {
     if (!teleporterRayCoordinates.isZero()) {
-      batch.end();
-      Gdx.gl.glEnable(GL20.GL_BLEND);
-      Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
-      rayRenderer.setProjectionMatrix(camera.combined);
-      rayRenderer.begin(ShapeType.Filled);
-      rayRenderer.rectLine(getCenterX(), getCenterY(),
-              teleporterRayCoordinates.x, teleporterRayCoordinates.y, 0.5f,
-              World.rayColorA, World.rayColorB);
-      rayRenderer.end();
-
-      batch.begin();
+      effects.line(batch, getInterpolatedX(alpha) + width / 2,
+          getInterpolatedY(alpha) + height / 2,
+          teleporterRayCoordinates.x, teleporterRayCoordinates.y, 0.5f,
+          World.rayColorA, World.rayColorB);
     }
-    super.render(batch, camera);
   }
 
   /**
@@ -253,7 +252,7 @@ public class Player extends GameEntity {
   private Vector2 handleRayCollisions(World world) {
     Vector2 output = new Vector2();
 
-    Vector2 targetCoordinates = new Vector2(Utils.getMouseCoordinates(world.camera));
+    Vector2 targetCoordinates = new Vector2(controller.getAimCoordinates(world));
     float alpha = 0.1f;
     boolean rayIntersected = false;
     // Allow the ray to go 20x the distance between the mouse and player,
@@ -265,9 +264,10 @@ public class Player extends GameEntity {
       output.lerp(targetCoordinates, alpha);
 
       // Check for entity collisions
-      for (GameEntity entity : world.getEntities()) {
+      world.entityGrid.query(output.x, output.y, 0f, 0f, nearbyEntities);
+      for (GameEntity entity : nearbyEntities) {
         if (!(entity instanceof Player)) {
-          if (entity.sprite.getBoundingRectangle().contains(output)) {
+          if (entity.getBounds().contains(output)) {
             rayIntersected = true;
             if (entity instanceof Npc) {
               Npc npc = (Npc) entity;
@@ -279,7 +279,7 @@ public class Player extends GameEntity {
       }
 
       // Check for tile collisions
-      TiledMapTileLayer collisionLayer = (TiledMapTileLayer) World.map.getLayers()
+      TiledMapTileLayer collisionLayer = (TiledMapTileLayer) world.map.getLayers()
               .get("collision_layer");
       Cell targetCell = collisionLayer.getCell(
               (int) output.x / collisionLayer.getTileWidth(),
@@ -339,17 +339,42 @@ public class Player extends GameEntity {
         speedBoost = true;
 
         // Start a timer to reset the speed boost
-        world.player.playerTimer.scheduleTask(new Task() {
-          @Override
-          public void run() {
-            world.player.speedBoost = false;
-            world.ui.queueMessage("Speed Boost expired");
-          }
-        }, World.AUBER_SPEED_BOOST_DURATION);
+        world.timers.schedule(this, SPEED_BOOST_EXPIRED_EVENT,
+            World.AUBER_SPEED_BOOST_DURATION);
       } else {
         world.ui.queueMessage("Speed Boost already acquired");
         // To avoid conflicts with the timer, acquiring a new speed boost powerup just does nothing.
       }
     }
   }
+
+  /**
+   * Handle the expiry of the ray, power-ups and debuffs scheduled on the world's timing wheel.
+   *
+   * @param event The ID of the event that fired
+   * @param world The game world
+   * */
+  @Override
+  public void onTimer(int event, World world) {
+    switch (event) {
+      case RAY_FINISHED_EVENT:
+        teleporterRayCoordinates.setZero();
+        break;
+      case SPEED_BOOST_EXPIRED_EVENT:
+        speedBoost = false;
+        world.ui.queueMessage("Speed Boost expired");
+        break;
+      case CONFUSION_EXPIRED_EVENT:
+        confused = false;
+        break;
+      case SLOW_EXPIRED_EVENT:
+        slowed = false;
+        break;
+      case BLINDNESS_EXPIRED_EVENT:
+        blinded = false;
+        break;
+      default:
+        break;
+    }
+  }
 }
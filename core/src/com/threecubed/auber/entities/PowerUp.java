@@ -36,7 +36,7 @@ public class PowerUp extends GameEntity{
      *    @param world The game world
      */
     public PowerUp(float x, float y, World world) {
-        super(x, y, world.atlas.createSprite("projectile"));
+        super(x, y, world.regions.getRegion("projectile"));
         this.used = false;
         //Every power up has a random type
         this.type = PowerUpType.values()[world.randomNumberGenerator.nextInt(PowerUpType.values().length)];
@@ -77,9 +77,9 @@ public class PowerUp extends GameEntity{
     }
 
     @Override
-    public void render(Batch batch, Camera camera) {
+    public void render(Batch batch, Camera camera, float alpha) {
         if(!used){
-            super.render(batch, camera);
+            super.render(batch, camera, alpha);
         }
     }
 
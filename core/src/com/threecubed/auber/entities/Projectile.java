@@ -1,24 +1,25 @@
 package com.threecubed.auber.entities;
 
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer.Task;
+import com.badlogic.gdx.utils.Array;
 import com.threecubed.auber.World;
+import java.util.Random;
 
 
 public class Projectile extends GameEntity {
   CollisionActions collisionAction;
   GameEntity originEntity;
+  private final Array<GameEntity> nearbyEntities = new Array<>();
 
   public static enum CollisionActions {
     CONFUSE,
     SLOW,
     BLIND;
 
-    public static CollisionActions randomAction() {
-      // Int rounds down so no need to sub 1 from length
-      return values()[(int) (Math.random() * values().length)];
+    public static CollisionActions randomAction(Random randomNumberGenerator) {
+      return values()[randomNumberGenerator.nextInt(values().length)];
     }
   }
 
@@ -34,7 +35,7 @@ public class Projectile extends GameEntity {
    * */
   public Projectile(float x, float y, Vector2 velocity, GameEntity originEntity,
       CollisionActions action, World world) {
-    super(x, y, world.atlas.createSprite("projectile"));
+    super(x, y, world.regions.getRegion("projectile"));
     collisionAction = action;
     this.originEntity = originEntity;
     this.velocity = velocity;
@@ -43,31 +44,140 @@ public class Projectile extends GameEntity {
 
   /**
    * Step the projectile in its target direction, execute the collision handler if it hits the
-   * {@link Player}, destroy if it hits anything else.
+   * {@link Player}, destroy if it hits anything else. Collisions are tested along the whole
+   * distance travelled this tick rather than just where the projectile ends up, so fast
+   * projectiles can't pass through walls or entities between one tick and the next.
    *
    * @param world The game world
    * */
   public void update(World world) {
-    position.add(velocity);
-    for (GameEntity entity : world.getEntities()) {
-      if (Intersector.overlaps(entity.sprite.getBoundingRectangle(),
-            sprite.getBoundingRectangle())
-          && entity != originEntity && entity != this) {
-        if (entity instanceof Player) {
-          handleCollisionWithPlayer(world);
-        } 
-        world.queueEntityRemove(this);
-        return;
+    float startX = position.x;
+    float startY = position.y;
+    float deltaX = velocity.x * world.getTickScale();
+    float deltaY = velocity.y * world.getTickScale();
+
+    float wallTime = findWallTime(world, deltaX, deltaY);
+
+    // Only entities near the swept area can be hit. The earliest hit wins, with entities
+    // winning ties against walls and against entities later in the entity list
+    GameEntity hitEntity = null;
+    float hitTime = Math.min(wallTime, 1f);
+    world.entityGrid.query(Math.min(startX, startX + deltaX), Math.min(startY, startY + deltaY),
+        Math.abs(deltaX) + width, Math.abs(deltaY) + height,
+        nearbyEntities);
+    for (GameEntity entity : nearbyEntities) {
+      if (entity != originEntity && entity != this) {
+        float entityTime = findSweptHitTime(entity.getBounds(), deltaX, deltaY);
+        if (hitEntity == null ? entityTime <= hitTime : entityTime < hitTime) {
+          hitEntity = entity;
+          hitTime = entityTime;
+        }
+      }
+    }
+
+    if (hitEntity != null || wallTime <= 1f) {
+      position.set(startX + deltaX * hitTime, startY + deltaY * hitTime);
+      if (hitEntity instanceof Player) {
+        handleCollisionWithPlayer(world);
+      }
+      world.queueEntityRemove(this);
+    } else {
+      position.set(startX + deltaX, startY + deltaY);
+    }
+  }
+
+  /**
+   * Find how far through this tick's movement the projectile's bounding box first touches a
+   * rectangle, by casting its bottom left corner against the rectangle grown by its size.
+   *
+   * @param target The rectangle to test against
+   * @param deltaX The distance the projectile moves along the x axis this tick
+   * @param deltaY The distance the projectile moves along the y axis this tick
+   * @return The fraction of the movement at which they first touch, or infinity if they don't
+   * */
+  private float findSweptHitTime(Rectangle target, float deltaX, float deltaY) {
+    float minX = target.x - width;
+    float maxX = target.x + target.width;
+    float minY = target.y - height;
+    float maxY = target.y + target.height;
+
+    float entry = 0f;
+    float exit = 1f;
+    if (deltaX == 0f) {
+      if (position.x <= minX || position.x >= maxX) {
+        return Float.POSITIVE_INFINITY;
+      }
+    } else {
+      float first = (minX - position.x) / deltaX;
+      float second = (maxX - position.x) / deltaX;
+      entry = Math.max(entry, Math.min(first, second));
+      exit = Math.min(exit, Math.max(first, second));
+    }
+    if (deltaY == 0f) {
+      if (position.y <= minY || position.y >= maxY) {
+        return Float.POSITIVE_INFINITY;
       }
+    } else {
+      float first = (minY - position.y) / deltaY;
+      float second = (maxY - position.y) / deltaY;
+      entry = Math.max(entry, Math.min(first, second));
+      exit = Math.min(exit, Math.max(first, second));
     }
+    return entry < exit ? entry : Float.POSITIVE_INFINITY;
+  }
 
+  /**
+   * Walk every tile the centre of the projectile passes through this tick, in order, and find
+   * how far through the movement it first enters a wall. The work done is proportional to the
+   * distance travelled.
+   *
+   * @param world The game world
+   * @param deltaX The distance the projectile moves along the x axis this tick
+   * @param deltaY The distance the projectile moves along the y axis this tick
+   * @return The fraction of the movement at which a wall is entered, or infinity if none is
+   * */
+  private float findWallTime(World world, float deltaX, float deltaY) {
     TiledMapTileLayer collisionLayer = (TiledMapTileLayer)
-        World.map.getLayers().get("collision_layer");
+        world.map.getLayers().get("collision_layer");
+    float tileWidth = collisionLayer.getTileWidth();
+    float tileHeight = collisionLayer.getTileHeight();
 
     int[] cellCoordinates = world.navigationMesh.getTilemapCoordinates(getCenterX(), getCenterY());
+    int tileX = cellCoordinates[0];
+    int tileY = cellCoordinates[1];
+    int[] endCoordinates = world.navigationMesh.getTilemapCoordinates(getCenterX() + deltaX,
+        getCenterY() + deltaY);
 
-    if (collisionLayer.getCell(cellCoordinates[0], cellCoordinates[1]) != null) {
-      world.queueEntityRemove(this);
+    int stepX = deltaX > 0 ? 1 : -1;
+    int stepY = deltaY > 0 ? 1 : -1;
+    // The fraction of the movement needed to cross one tile, and to reach the next tile edge
+    float timePerTileX = deltaX == 0f ? Float.POSITIVE_INFINITY : Math.abs(tileWidth / deltaX);
+    float timePerTileY = deltaY == 0f ? Float.POSITIVE_INFINITY : Math.abs(tileHeight / deltaY);
+    float nextTimeX = deltaX == 0f ? Float.POSITIVE_INFINITY
+        : ((tileX + (stepX > 0 ? 1 : 0)) * tileWidth - getCenterX()) / deltaX;
+    float nextTimeY = deltaY == 0f ? Float.POSITIVE_INFINITY
+        : ((tileY + (stepY > 0 ? 1 : 0)) * tileHeight - getCenterY()) / deltaY;
+
+    float time = 0f;
+    while (true) {
+      if (collisionLayer.getCell(tileX, tileY) != null) {
+        return time;
+      }
+      if (tileX == endCoordinates[0] && tileY == endCoordinates[1]) {
+        return Float.POSITIVE_INFINITY;
+      }
+      if (nextTimeX < nextTimeY) {
+        tileX += stepX;
+        time = nextTimeX;
+        nextTimeX += timePerTileX;
+      } else {
+        tileY += stepY;
+        time = nextTimeY;
+        nextTimeY += timePerTileY;
+      }
+      if (time > 1f) {
+        return Float.POSITIVE_INFINITY;
+      }
     }
   }
 
@@ -96,33 +206,19 @@ public class Projectile extends GameEntity {
     }
   }
 
-  private void confusePlayer(final World world) {
+  private void confusePlayer(World world) {
     world.player.confused = true;
-    world.player.playerTimer.scheduleTask(new Task() {
-      @Override
-      public void run() {
-        world.player.confused = false;
-      }
-    }, World.AUBER_DEBUFF_TIME);
+    world.timers.schedule(world.player, Player.CONFUSION_EXPIRED_EVENT, World.AUBER_DEBUFF_TIME);
   }
 
-  private void slowPlayer(final World world) {
+  private void slowPlayer(World world) {
     world.player.slowed = true;
-    world.player.playerTimer.scheduleTask(new Task() {
-      @Override
-      public void run() {
-        world.player.slowed = false;
-      }
-    }, World.AUBER_DEBUFF_TIME);
+    world.timers.schedule(world.player, Player.SLOW_EXPIRED_EVENT, World.AUBER_DEBUFF_TIME);
   }
 
-  private void blindPlayer(final World world) {
+  private void blindPlayer(World world) {
     world.player.blinded = true;
-    world.player.playerTimer.scheduleTask(new Task() {
-      @Override
-      public void run() {
-        world.player.blinded = false;
-      }
-    }, World.AUBER_DEBUFF_TIME - 3f);
+    world.timers.schedule(world.player, Player.BLINDNESS_EXPIRED_EVENT,
+        World.AUBER_DEBUFF_TIME - 3f);
   }
 }
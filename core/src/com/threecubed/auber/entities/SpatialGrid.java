@@ -0,0 +1,192 @@
+package com.threecubed.auber.entities;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import java.util.List;
+
+
+/**
+ * A uniform grid over the world that buckets entities by position, so that finding the entities
+ * near a point costs the number of entities nearby rather than the number in the world. The grid
+ * is rebuilt from the entity list at the start of every tick, so lookups see where entities were
+ * at that point, and again once the tick's movement is done, ready for rendering. Cells are
+ * larger than any entity and lookups cover one extra cell in every direction, so an entity is
+ * always found by a lookup over any area it overlaps during the tick.
+ *
+ * <p>Entities that have jumped further than a cell since their previous state, such as by
+ * teleporting, are found by every lookup, as they may be drawn anywhere between the two.
+ *
+ * <p>Lookups return entities in the same order as the world's entity list, so swapping a loop
+ * over every entity for a lookup doesn't change which entity is found first.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class SpatialGrid {
+  /** The width and height of each cell, in world units. */
+  public static final float CELL_SIZE = 32f;
+  /** How many entities a neighbour search may examine for each neighbour it is asked for. */
+  public static final int MAX_NEIGHBOUR_CANDIDATES = 4;
+
+  private final int columns;
+  private final int rows;
+  /** The index of the first entity in each cell, or -1 if the cell is empty. */
+  private final int[] cellHeads;
+  /** The index of the next entity in the same cell as each entity, or -1 at the end. */
+  private int[] nextInCell = new int[0];
+  private GameEntity[] indexedEntities = new GameEntity[0];
+  private int entityCount = 0;
+
+  /** The indices of entities that moved further than a cell from their previous position. */
+  private final IntArray movedIndices = new IntArray();
+  private final IntArray queryIndices = new IntArray();
+
+  /**
+   * Initialise a grid covering a world of the given size. Entities outside of the world are
+   * bucketed into the nearest edge cell.
+   *
+   * @param width The width of the world, in world units
+   * @param height The height of the world, in world units
+   * */
+  public SpatialGrid(float width, float height) {
+    columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+    rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+    cellHeads = new int[columns * rows];
+  }
+
+  /**
+   * Bucket every entity by its current position, replacing anything already in the grid.
+   *
+   * @param entities The entities to add to the grid
+   * */
+  public void rebuild(List<GameEntity> entities) {
+    entityCount = entities.size();
+    if (indexedEntities.length < entityCount) {
+      int capacity = Math.max(entityCount, indexedEntities.length * 2);
+      indexedEntities = new GameEntity[capacity];
+      nextInCell = new int[capacity];
+    }
+    for (int i = 0; i < cellHeads.length; i++) {
+      cellHeads[i] = -1;
+    }
+    movedIndices.clear();
+    for (int i = 0; i < entityCount; i++) {
+      GameEntity entity = entities.get(i);
+      int cell = getRow(entity.position.y) * columns + getColumn(entity.position.x);
+      indexedEntities[i] = entity;
+      nextInCell[i] = cellHeads[cell];
+      cellHeads[cell] = i;
+      if (Math.abs(entity.position.x - entity.previousPosition.x) > CELL_SIZE
+          || Math.abs(entity.position.y - entity.previousPosition.y) > CELL_SIZE) {
+        movedIndices.add(i);
+      }
+    }
+    for (int i = entityCount; i < indexedEntities.length && indexedEntities[i] != null; i++) {
+      // Don't keep removed entities alive
+      indexedEntities[i] = null;
+    }
+  }
+
+  /**
+   * Find every entity that may overlap the given area. Callers should still test each entity
+   * exactly, as nearby entities that don't overlap are included too.
+   *
+   * @param x The x coordinate of the bottom left of the area
+   * @param y The y coordinate of the bottom left of the area
+   * @param width The width of the area
+   * @param height The height of the area
+   * @param output The array to fill with entities, cleared first
+   * @return The output array
+   * */
+  public Array<GameEntity> query(float x, float y, float width, float height,
+      Array<GameEntity> output) {
+    output.clear();
+    IntArray indices = queryIndices;
+    indices.clear();
+
+    int firstColumn = Math.max(0, getColumn(x) - 1);
+    int lastColumn = Math.min(columns - 1, getColumn(x + width) + 1);
+    int firstRow = Math.max(0, getRow(y) - 1);
+    int lastRow = Math.min(rows - 1, getRow(y + height) + 1);
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        for (int i = cellHeads[row * columns + column]; i != -1; i = nextInCell[i]) {
+          indices.add(i);
+        }
+      }
+    }
+
+    indices.addAll(movedIndices);
+
+    indices.sort();
+    for (int i = 0; i < indices.size; i++) {
+      // Entities that moved may also be in one of the cells
+      if (i == 0 || indices.get(i) != indices.get(i - 1)) {
+        output.add(indexedEntities[indices.get(i)]);
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Find every entity that may be within a given distance of a point.
+   *
+   * @param x The x coordinate of the point
+   * @param y The y coordinate of the point
+   * @param radius The distance from the point to search
+   * @param output The array to fill with entities, cleared first
+   * @return The output array
+   * */
+  public Array<GameEntity> queryRadius(float x, float y, float radius,
+      Array<GameEntity> output) {
+    return query(x - radius, y - radius, radius * 2, radius * 2, output);
+  }
+
+  /**
+   * Find up to {@code output.length} entities whose position at the start of the tick is within
+   * a given distance of a point. At most {@link SpatialGrid#MAX_NEIGHBOUR_CANDIDATES} times that
+   * many entities are examined, so the cost is bounded however crowded the area is. Unlike
+   * {@link SpatialGrid#query(float, float, float, float, Array)}, this uses no shared state, so
+   * it may be called from several threads at once.
+   *
+   * @param self An entity to leave out of the results, usually the one searching
+   * @param x The x coordinate of the point
+   * @param y The y coordinate of the point
+   * @param radius The distance from the point to search, no larger than a cell
+   * @param output The array to fill with neighbours
+   * @return The number of neighbours written to the output
+   * */
+  public int findNeighbours(GameEntity self, float x, float y, float radius,
+      GameEntity[] output) {
+    int found = 0;
+    int candidatesLeft = output.length * MAX_NEIGHBOUR_CANDIDATES;
+    float radiusSquared = radius * radius;
+
+    int centreColumn = getColumn(x);
+    int centreRow = getRow(y);
+    for (int row = Math.max(0, centreRow - 1); row <= Math.min(rows - 1, centreRow + 1); row++) {
+      for (int column = Math.max(0, centreColumn - 1);
+          column <= Math.min(columns - 1, centreColumn + 1); column++) {
+        for (int i = cellHeads[row * columns + column]; i != -1; i = nextInCell[i]) {
+          if (found == output.length || candidatesLeft-- == 0) {
+            return found;
+          }
+          GameEntity entity = indexedEntities[i];
+          if (entity != self && entity.previousPosition.dst2(x, y) < radiusSquared) {
+            output[found++] = entity;
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  private int getColumn(float x) {
+    return Math.min(columns - 1, Math.max(0, (int) (x / CELL_SIZE)));
+  }
+
+  private int getRow(float y) {
+    return Math.min(rows - 1, Math.max(0, (int) (y / CELL_SIZE)));
+  }
+}
@@ -0,0 +1,76 @@
+package com.threecubed.auber.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.math.Vector2;
+import com.threecubed.auber.Utils;
+import com.threecubed.auber.World;
+
+
+/**
+ * Reads the player's input from the keyboard and mouse. Key presses are latched once per frame
+ * and consumed by the next simulation tick, so that they are neither lost nor repeated when a
+ * frame runs zero or several ticks.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class KeyboardController implements PlayerController {
+  private boolean respawnPressed = false;
+  private boolean savePressed = false;
+  private boolean interactPressed = false;
+
+  @Override
+  public void poll(World world) {
+    respawnPressed |= Gdx.input.isKeyJustPressed(Input.Keys.Q);
+    savePressed |= Gdx.input.isKeyJustPressed(Input.Keys.G);
+    interactPressed |= Gdx.input.isKeyJustPressed(Input.Keys.E);
+  }
+
+  @Override
+  public int getHorizontalInput() {
+    // Convert the key states to numbers (True -> 1, False -> 0)
+    int keyPressedLf = (Gdx.input.isKeyPressed(Input.Keys.A)) ? 1 : 0;
+    int keyPressedRt = (Gdx.input.isKeyPressed(Input.Keys.D)) ? 1 : 0;
+    return keyPressedRt - keyPressedLf;
+  }
+
+  @Override
+  public int getVerticalInput() {
+    int keyPressedUp = (Gdx.input.isKeyPressed(Input.Keys.W)) ? 1 : 0;
+    int keyPressedDn = (Gdx.input.isKeyPressed(Input.Keys.S)) ? 1 : 0;
+    return keyPressedUp - keyPressedDn;
+  }
+
+  @Override
+  public boolean isFiring() {
+    return Gdx.input.isButtonPressed(Input.Buttons.LEFT);
+  }
+
+  @Override
+  public Vector2 getAimCoordinates(World world) {
+    return Utils.getMouseCoordinates(world.camera);
+  }
+
+  @Override
+  public boolean consumeRespawn() {
+    boolean pressed = respawnPressed;
+    respawnPressed = false;
+    return pressed;
+  }
+
+  @Override
+  public boolean consumeSave() {
+    boolean pressed = savePressed;
+    savePressed = false;
+    return pressed;
+  }
+
+  @Override
+  public boolean consumeInteract() {
+    boolean pressed = interactPressed;
+    interactPressed = false;
+    return pressed;
+  }
+}
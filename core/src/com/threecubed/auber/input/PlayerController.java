@@ -0,0 +1,73 @@
+package com.threecubed.auber.input;
+
+import com.badlogic.gdx.math.Vector2;
+import com.threecubed.auber.World;
+
+
+/**
+ * A source of input for the {@link com.threecubed.auber.entities.Player}. Separating input from
+ * the player allows the world to be driven by the keyboard and mouse, or by an automated
+ * controller when running without a window.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public interface PlayerController {
+  /**
+   * Poll for input. Called once per frame, before any simulation ticks for that frame are run.
+   *
+   * @param world The game world
+   * */
+  void poll(World world);
+
+  /**
+   * Get the horizontal movement input.
+   *
+   * @return -1 to move left, 1 to move right or 0 to not move horizontally
+   * */
+  int getHorizontalInput();
+
+  /**
+   * Get the vertical movement input.
+   *
+   * @return -1 to move down, 1 to move up or 0 to not move vertically
+   * */
+  int getVerticalInput();
+
+  /**
+   * Check whether the teleporter ray is being charged.
+   *
+   * @return Whether the fire input is held
+   * */
+  boolean isFiring();
+
+  /**
+   * Get the point in the game world that the player is aiming at.
+   *
+   * @param world The game world
+   * @return The world coordinates being aimed at
+   * */
+  Vector2 getAimCoordinates(World world);
+
+  /**
+   * Check whether a return to the medbay was requested since this was last called.
+   *
+   * @return Whether the player should respawn
+   * */
+  boolean consumeRespawn();
+
+  /**
+   * Check whether a save was requested since this was last called.
+   *
+   * @return Whether the game should be saved
+   * */
+  boolean consumeSave();
+
+  /**
+   * Check whether an interaction was requested since this was last called.
+   *
+   * @return Whether the player should interact with nearby objects
+   * */
+  boolean consumeInteract();
+}
@@ -0,0 +1,105 @@
+package com.threecubed.auber.input;
+
+import com.badlogic.gdx.math.Vector2;
+import com.threecubed.auber.Utils;
+import com.threecubed.auber.World;
+import java.util.Random;
+
+
+/**
+ * An automated controller that wanders the player around the map, charging and firing the
+ * teleporter ray at random points and occasionally using interactables. Used to exercise the
+ * player's code paths when simulating games without a window.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class RandomController implements PlayerController {
+  /** The longest time, in polls, the controller will hold a single input for. */
+  private static final int MAX_HOLD_POLLS = 120;
+  /** The furthest from the player, in world units, that the controller will aim. */
+  private static final float AIM_RANGE = 80f;
+  /** The chance per poll of requesting an interaction. */
+  private static final float INTERACT_CHANCE = 0.01f;
+
+  private final Random randomNumberGenerator;
+
+  private int horizontalInput = 0;
+  private int verticalInput = 0;
+  private int movementPollsRemaining = 0;
+
+  private boolean firing = false;
+  private int firingPollsRemaining = 0;
+  private final Vector2 aimCoordinates = new Vector2();
+
+  private boolean interactPressed = false;
+
+  /**
+   * Initialise the controller with a seed, so that runs can be reproduced.
+   *
+   * @param seed The seed for the controller's random number generator
+   * */
+  public RandomController(long seed) {
+    randomNumberGenerator = new Random(seed);
+  }
+
+  @Override
+  public void poll(World world) {
+    if (--movementPollsRemaining <= 0) {
+      horizontalInput = Utils.randomIntInRange(randomNumberGenerator, -1, 1);
+      verticalInput = Utils.randomIntInRange(randomNumberGenerator, -1, 1);
+      movementPollsRemaining = Utils.randomIntInRange(randomNumberGenerator, 1, MAX_HOLD_POLLS);
+    }
+
+    if (--firingPollsRemaining <= 0) {
+      // Holding fire charges the ray, releasing it after a full charge fires it
+      firing = !firing;
+      firingPollsRemaining = Utils.randomIntInRange(randomNumberGenerator, 1, MAX_HOLD_POLLS);
+      aimCoordinates.set(
+          world.player.getCenterX() + Utils.randomFloatInRange(randomNumberGenerator,
+            -AIM_RANGE, AIM_RANGE),
+          world.player.getCenterY() + Utils.randomFloatInRange(randomNumberGenerator,
+            -AIM_RANGE, AIM_RANGE));
+    }
+
+    interactPressed |= randomNumberGenerator.nextFloat() < INTERACT_CHANCE;
+  }
+
+  @Override
+  public int getHorizontalInput() {
+    return horizontalInput;
+  }
+
+  @Override
+  public int getVerticalInput() {
+    return verticalInput;
+  }
+
+  @Override
+  public boolean isFiring() {
+    return firing;
+  }
+
+  @Override
+  public Vector2 getAimCoordinates(World world) {
+    return aimCoordinates;
+  }
+
+  @Override
+  public boolean consumeRespawn() {
+    return false;
+  }
+
+  @Override
+  public boolean consumeSave() {
+    return false;
+  }
+
+  @Override
+  public boolean consumeInteract() {
+    boolean pressed = interactPressed;
+    interactPressed = false;
+    return pressed;
+  }
+}
@@ -1,8 +1,8 @@
 package com.threecubed.auber.pathfinding;
 
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.threecubed.auber.MapBundle;
 import com.threecubed.auber.entities.GameEntity;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,10 +13,10 @@ import java.util.PriorityQueue;
 
 /**
  * The NavigationMesh class is a wrapper around a 2d array of {@link Boolean}s representing which
- * tiles within the game world are accessible. It reads in a {@link TiledMapTileLayer} in order to
- * produce this array of booleans. If a given set of coordinates do not have a tile, it is
- * considered inaccessible. For this reason, the background layer of the map is used as the input
- * for the navigation mesh.
+ * tiles within the game world are accessible. It reads the navigation bitmap of a
+ * {@link MapBundle}, compiled from the map's navigation layer, in order to produce this array of
+ * booleans. If a given set of coordinates do not have a tile on that layer, it is considered
+ * inaccessible.
  * The class also contains functions required to facilitate A* pathfinding which entities that
  * inherit from Npc make use of.
  *
@@ -26,24 +26,33 @@ import java.util.PriorityQueue;
  * */
 public class NavigationMesh {
   private boolean[][] mesh;
-  TiledMapTileLayer navigationLayer;
+  /** The last search each tile was opened or closed in, indexed the same way as the mesh. */
+  private int[][] seenInSearch;
+  private int searchCount = 0;
+  /** The number of paths that have been generated. */
+  public long pathsGenerated = 0;
+  /** The total time spent generating paths, in nanoseconds. */
+  public long pathfindingNanos = 0;
+  private final int tileWidth;
+  private final int tileHeight;
 
   /**
-   * Produce a navigation mesh from a given {@link TiledMapTileLayer}.
-   * This works by iterating over the given layer and appending either true or false to the mesh
-   * based upon whether a tile is present at the current coordinates
+   * Produce a navigation mesh from a given {@link MapBundle}.
+   * This works by iterating over the bundle's navigation bitmap and appending either true or
+   * false to the mesh based upon whether a tile is present at the current coordinates
    *
-   * @param navigationLayer The layer to produce a navigation mesh from
+   * @param bundle The bundle of the map to produce a navigation mesh from
    * */
-  public NavigationMesh(TiledMapTileLayer navigationLayer) {
-    this.navigationLayer = navigationLayer;
+  public NavigationMesh(MapBundle bundle) {
+    tileWidth = bundle.tileWidth;
+    tileHeight = bundle.tileHeight;
 
-    mesh = new boolean[navigationLayer.getHeight()][navigationLayer.getWidth()];
+    mesh = new boolean[bundle.height][bundle.width];
+    seenInSearch = new int[bundle.height][bundle.width];
 
-    for (int y = 0; y < navigationLayer.getHeight(); y++) {
-      for (int x = 0; x < navigationLayer.getWidth(); x++) {
-        Cell currentCell = navigationLayer.getCell(x, y);
-        setCell(x, y, currentCell == null ? false : true);
+    for (int y = 0; y < bundle.height; y++) {
+      for (int x = 0; x < bundle.width; x++) {
+        setCell(x, y, bundle.navigable[y * bundle.width + x]);
       }
     }
   }
@@ -73,6 +82,28 @@ public class NavigationMesh {
     return mesh[y][x];
   }
 
+  /**
+   * Check whether every tile under a rectangle in world coordinates is accessible, by testing
+   * the tile under each corner. Rectangles no larger than a tile can't cover any other tiles.
+   *
+   * @param x The x coordinate of the bottom left of the rectangle
+   * @param y The y coordinate of the bottom left of the rectangle
+   * @param width The width of the rectangle
+   * @param height The height of the rectangle
+   * @return True if the whole rectangle is on accessible tiles
+   * */
+  public boolean areaAccessible(float x, float y, float width, float height) {
+    int left = (int) Math.floor(x / tileWidth);
+    int right = (int) Math.floor((x + width) / tileWidth);
+    int bottom = (int) Math.floor(y / tileHeight);
+    int top = (int) Math.floor((y + height) / tileHeight);
+    if (left < 0 || bottom < 0 || right >= mesh[0].length || top >= mesh.length) {
+      return false;
+    }
+    return cellAccessible(left, bottom) && cellAccessible(right, bottom)
+        && cellAccessible(left, top) && cellAccessible(right, top);
+  }
+
   /**
    * Return the coordinates of the tile in the actual game world.
    *
@@ -82,13 +113,13 @@ public class NavigationMesh {
    * @return A {@link Vector2} of converted coordinates
    * */
   public Vector2 getWorldCoordinates(int x, int y) {
-    return new Vector2((float) x * navigationLayer.getTileWidth(),
-                       (float) y * navigationLayer.getTileHeight());
+    return new Vector2((float) x * tileWidth,
+                       (float) y * tileHeight);
   }
 
   public int[] getTilemapCoordinates(float x, float y) {
-    return new int[] {(int) Math.floor(x / navigationLayer.getTileWidth()),
-                      (int) Math.floor(y / navigationLayer.getTileHeight())};
+    return new int[] {(int) Math.floor(x / tileWidth),
+                      (int) Math.floor(y / tileHeight)};
   }
 
   /**
@@ -167,10 +198,13 @@ public class NavigationMesh {
       }
     };
 
-    PriorityQueue<PathNode> openNodes = new PriorityQueue<>(distanceComparator);
+    PriorityQueue<PathNode> openNodes = new PriorityQueue<>(11, distanceComparator);
     openNodes.add(startNode);
 
-    ArrayList<PathNode> closedNodes = new ArrayList<>();
+    // Nodes are never reopened, so a single stamp per tile records whether it has been seen in
+    // this search without clearing an array or searching a list for every successor
+    int search = ++searchCount;
+    seenInSearch[start[1]][start[0]] = search;
 
     while (!openNodes.isEmpty()) {
       PathNode currentNode = openNodes.remove();
@@ -183,11 +217,11 @@ public class NavigationMesh {
           }
           Collections.reverse(path);
           return path;
-        } else if (!closedNodes.contains(successor) && !openNodes.contains(successor)) {
+        } else if (seenInSearch[successor.position[1]][successor.position[0]] != search) {
+          seenInSearch[successor.position[1]][successor.position[0]] = search;
           openNodes.add(successor);
         }
       }
-      closedNodes.add(currentNode);
     }
     throw new IllegalArgumentException("No path between the 2 given points could be found");
   }
@@ -202,24 +236,54 @@ public class NavigationMesh {
    * @return An {@link ArrayList} of {@link Vector2}s that represent a path to the requested point
    * */
   public ArrayList<Vector2> generateWorldPathToPoint(Vector2 start, Vector2 destination) {
-    int[] startTile = {(int) start.x / navigationLayer.getTileWidth(),
-                       (int) start.y / navigationLayer.getTileHeight()};
+    long startTime = TimeUtils.nanoTime();
+    int[] startTile = getNearestAccessibleTile(
+        (int) start.x / tileWidth,
+        (int) start.y / tileHeight);
 
-    int[] destinationTile = {(int) destination.x / navigationLayer.getTileWidth(),
-                             (int) destination.y / navigationLayer.getTileHeight()};
+    int[] destinationTile = {(int) destination.x / tileWidth,
+                             (int) destination.y / tileHeight};
 
     ArrayList<int[]> tilemapPath = generateTilemapPathToPoint(startTile, destinationTile);
     ArrayList<Vector2> worldPath = new ArrayList<>();
 
     for (int[] node : tilemapPath) {
-      worldPath.add(new Vector2(node[0] * navigationLayer.getTileWidth(),
-                                node[1] * navigationLayer.getTileHeight()));
+      worldPath.add(new Vector2(node[0] * tileWidth,
+                                node[1] * tileHeight));
     }
     worldPath.add(destination);
 
+    pathsGenerated++;
+    pathfindingNanos += TimeUtils.nanoTime() - startTime;
     return worldPath;
   }
 
+  /**
+   * Return the given tile if it is accessible, otherwise the first accessible tile surrounding it.
+   * NPCs can clip the corner of an inaccessible tile while moving between nodes, which would
+   * otherwise leave them with no path out.
+   *
+   * @param x The x coordinate of the tile
+   * @param y The y coordinate of the tile
+   * @return The tilemap coordinates of an accessible tile, or the given tile if none is found
+   * */
+  public int[] getNearestAccessibleTile(int x, int y) {
+    if (x >= 0 && x < mesh[0].length && y >= 0 && y < mesh.length && cellAccessible(x, y)) {
+      return new int[] {x, y};
+    }
+    for (int offsetY = -1; offsetY <= 1; offsetY++) {
+      for (int offsetX = -1; offsetX <= 1; offsetX++) {
+        int targetX = x + offsetX;
+        int targetY = y + offsetY;
+        if (targetX >= 0 && targetX < mesh[0].length && targetY >= 0 && targetY < mesh.length
+            && cellAccessible(targetX, targetY)) {
+          return new int[] {targetX, targetY};
+        }
+      }
+    }
+    return new int[] {x, y};
+  }
+
   /**
    * Get the coordinates of the furthest point from the given entity.
    *
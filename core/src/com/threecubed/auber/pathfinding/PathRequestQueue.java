@@ -0,0 +1,81 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.Queue;
+import com.threecubed.auber.World;
+import com.threecubed.auber.entities.Npc;
+
+
+/**
+ * Queues path requests that don't need answering straight away, such as an NPC wandering to a
+ * new system, so that they can be spread over several ticks when frames are running long.
+ * Urgent requests, like fleeing, should go straight to the {@link NavigationMesh}.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class PathRequestQueue {
+  /** The number of queued requests answered each tick while requests are being deferred. */
+  public static final int REQUESTS_PER_TICK = 4;
+
+  private final Queue<Npc> requesters = new Queue<>();
+  private final Queue<float[]> destinations = new Queue<>();
+
+  /** Whether new requests should be queued rather than answered immediately. */
+  public boolean deferring = false;
+
+  /**
+   * Request a path for an NPC. If requests are not being deferred, the path is found straight
+   * away, otherwise the NPC waits until {@link PathRequestQueue#process(World)} reaches it.
+   *
+   * @param npc The NPC that wants to move
+   * @param x The x coordinate to navigate to
+   * @param y The y coordinate to navigate to
+   * @param world The game world
+   * @return True if the path was found straight away, false if it was queued
+   * */
+  public boolean request(Npc npc, float x, float y, World world) {
+    if (!deferring && requesters.size == 0) {
+      npc.updatePath(x, y, world);
+      return true;
+    }
+    requesters.addLast(npc);
+    destinations.addLast(new float[] {x, y});
+    world.governor.deferredPathRequests++;
+    return false;
+  }
+
+  /**
+   * Answer queued requests, at most {@link PathRequestQueue#REQUESTS_PER_TICK} while deferring
+   * or all of them otherwise. Requests are answered in the order they were made. NPCs that have
+   * stopped waiting, for example because they started fleeing, are skipped.
+   *
+   * @param world The game world
+   * */
+  public void process(World world) {
+    int budget = deferring ? REQUESTS_PER_TICK : requesters.size;
+    while (budget > 0 && requesters.size > 0) {
+      Npc npc = requesters.removeFirst();
+      float[] destination = destinations.removeFirst();
+      if (npc.awaitingPath) {
+        npc.receivePath(destination[0], destination[1], world);
+        budget--;
+      }
+    }
+  }
+
+  /**
+   * Get the number of requests waiting to be answered.
+   *
+   * @return The number of queued requests
+   * */
+  public int getQueueDepth() {
+    return requesters.size;
+  }
+
+  /** Drop every queued request. */
+  public void clear() {
+    requesters.clear();
+    destinations.clear();
+  }
+}
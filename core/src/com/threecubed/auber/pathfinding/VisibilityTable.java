@@ -0,0 +1,231 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * A precomputed table of which tiles can see each other, built from a map's collision bitmap.
+ * Every open tile stores a bitset covering the square of tiles within a fixed range of it, with a
+ * bit set for each tile a straight line from its centre reaches without crossing a wall. Queries
+ * are then a single bit lookup, however many entities ask.
+ *
+ * <p>Only whether a collision tile is present matters, and that never changes during a game, so
+ * the table is built when a {@link com.threecubed.auber.MapBundle} is compiled and stored in it,
+ * and one table is shared by every world built from the same map.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class VisibilityTable {
+  private final int width;
+  private final int height;
+  private final float tileWidth;
+  private final float tileHeight;
+  /** The furthest any tile can be seen from, in tiles along each axis. */
+  private final int range;
+  private final int windowSize;
+  private final int wordsPerTile;
+  /** Whether each tile blocks sight, indexed by {@code y * width + x}. */
+  private final boolean[] blocked;
+  /** The first word of each tile's bitset, or -1 for tiles that block sight. */
+  private final int[] offsets;
+  private final long[] bits;
+
+  /**
+   * Build a visibility table by tracing a line from every open tile to every tile in range of
+   * it. Any blocked tile blocks sight.
+   *
+   * @param width The width of the map, in tiles
+   * @param height The height of the map, in tiles
+   * @param tileWidth The width of each tile, in world units
+   * @param tileHeight The height of each tile, in world units
+   * @param blocked Whether each tile blocks sight, indexed by {@code y * width + x}
+   * @param range The furthest distance to record visibility over, in tiles along each axis
+   * */
+  public VisibilityTable(int width, int height, int tileWidth, int tileHeight, boolean[] blocked,
+      int range) {
+    this(width, height, tileWidth, tileHeight, blocked, range, null);
+  }
+
+  private VisibilityTable(int width, int height, int tileWidth, int tileHeight,
+      boolean[] blocked, int range, long[] storedBits) {
+    this.width = width;
+    this.height = height;
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+    this.blocked = blocked;
+    this.range = range;
+    windowSize = range * 2 + 1;
+    wordsPerTile = (windowSize * windowSize + 63) / 64;
+
+    offsets = new int[width * height];
+    int openTiles = 0;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (blocked[y * width + x]) {
+          offsets[y * width + x] = -1;
+        } else {
+          offsets[y * width + x] = openTiles++ * wordsPerTile;
+        }
+      }
+    }
+
+    if (storedBits != null) {
+      if (storedBits.length != openTiles * wordsPerTile) {
+        throw new GdxRuntimeException("Visibility table doesn't match the collision bitmap");
+      }
+      bits = storedBits;
+      return;
+    }
+    bits = new long[openTiles * wordsPerTile];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int offset = offsets[y * width + x];
+        if (offset == -1) {
+          continue;
+        }
+        for (int targetY = y - range; targetY <= y + range; targetY++) {
+          for (int targetX = x - range; targetX <= x + range; targetX++) {
+            if (inBounds(targetX, targetY) && lineClear(x, y, targetX, targetY)) {
+              int bit = (targetY - y + range) * windowSize + (targetX - x + range);
+              bits[offset + (bit >> 6)] |= 1L << (bit & 63);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Read a table written by {@link VisibilityTable#write(DataOutputStream)}, for a map with the
+   * given size and collision bitmap.
+   *
+   * @param buffer The buffer to read from, positioned at the start of the table
+   * @param width The width of the map, in tiles
+   * @param height The height of the map, in tiles
+   * @param tileWidth The width of each tile, in world units
+   * @param tileHeight The height of each tile, in world units
+   * @param blocked Whether each tile blocks sight, indexed by {@code y * width + x}
+   * @return The table
+   * @throws GdxRuntimeException if the table wasn't built from the same collision bitmap
+   * */
+  public static VisibilityTable read(ByteBuffer buffer, int width, int height, int tileWidth,
+      int tileHeight, boolean[] blocked) {
+    int range = buffer.getInt();
+    long[] bits = new long[buffer.getInt()];
+    buffer.asLongBuffer().get(bits);
+    buffer.position(buffer.position() + bits.length * 8);
+    return new VisibilityTable(width, height, tileWidth, tileHeight, blocked, range, bits);
+  }
+
+  /**
+   * Write the range and bitsets of the table. The collision bitmap isn't written, it must be
+   * passed back in when the table is read.
+   *
+   * @param output The stream to write to
+   * @throws IOException if the stream can't be written to
+   * */
+  public void write(DataOutputStream output) throws IOException {
+    output.writeInt(range);
+    output.writeInt(bits.length);
+    for (long word : bits) {
+      output.writeLong(word);
+    }
+  }
+
+  public int getRange() {
+    return range;
+  }
+
+  /**
+   * Check whether one tile can be seen from another.
+   *
+   * @param fromX The x coordinate of the tile being looked from
+   * @param fromY The y coordinate of the tile being looked from
+   * @param toX The x coordinate of the tile being looked at
+   * @param toY The y coordinate of the tile being looked at
+   * @return True if the tiles are within range of each other and no wall is in the way. Tiles
+   *         that block sight can't see anything
+   * */
+  public boolean tileVisible(int fromX, int fromY, int toX, int toY) {
+    int offsetX = toX - fromX + range;
+    int offsetY = toY - fromY + range;
+    if (!inBounds(fromX, fromY) || offsetX < 0 || offsetX >= windowSize
+        || offsetY < 0 || offsetY >= windowSize) {
+      return false;
+    }
+    int offset = offsets[fromY * width + fromX];
+    if (offset == -1) {
+      return false;
+    }
+    int bit = offsetY * windowSize + offsetX;
+    return (bits[offset + (bit >> 6)] & (1L << (bit & 63))) != 0;
+  }
+
+  /**
+   * Check whether one point in the world can be seen from another, by looking up the tiles the
+   * points are in.
+   *
+   * @param fromX The x coordinate being looked from
+   * @param fromY The y coordinate being looked from
+   * @param toX The x coordinate being looked at
+   * @param toY The y coordinate being looked at
+   * @return True if the points are within range of each other and no wall is in the way
+   * */
+  public boolean pointVisible(float fromX, float fromY, float toX, float toY) {
+    return tileVisible((int) Math.floor(fromX / tileWidth), (int) Math.floor(fromY / tileHeight),
+        (int) Math.floor(toX / tileWidth), (int) Math.floor(toY / tileHeight));
+  }
+
+  /**
+   * Walk every tile a line between the centres of two tiles passes through, checking none of
+   * them block sight. Where the line passes exactly through a corner it is only blocked if both
+   * tiles beside the corner are.
+   * */
+  private boolean lineClear(int fromX, int fromY, int toX, int toY) {
+    int distanceX = Math.abs(toX - fromX);
+    int distanceY = Math.abs(toY - fromY);
+    int stepX = toX > fromX ? 1 : -1;
+    int stepY = toY > fromY ? 1 : -1;
+
+    int x = fromX;
+    int y = fromY;
+    int stepsX = 0;
+    int stepsY = 0;
+    while (stepsX < distanceX || stepsY < distanceY) {
+      // Compare when the line next crosses a vertical and a horizontal tile edge
+      int decision = (1 + 2 * stepsX) * distanceY - (1 + 2 * stepsY) * distanceX;
+      if (decision == 0) {
+        if (blocksSight(x + stepX, y) && blocksSight(x, y + stepY)) {
+          return false;
+        }
+        x += stepX;
+        y += stepY;
+        stepsX++;
+        stepsY++;
+      } else if (decision < 0) {
+        x += stepX;
+        stepsX++;
+      } else {
+        y += stepY;
+        stepsY++;
+      }
+      if ((x != toX || y != toY) && blocksSight(x, y)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean blocksSight(int x, int y) {
+    return !inBounds(x, y) || blocked[y * width + x];
+  }
+
+  private boolean inBounds(int x, int y) {
+    return x >= 0 && x < width && y >= 0 && y < height;
+  }
+}
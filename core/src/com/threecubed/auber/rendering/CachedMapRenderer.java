@@ -0,0 +1,342 @@
+package com.threecubed.auber.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.SystemRegistry;
+import com.threecubed.auber.World;
+
+
+/**
+ * Renders the tile layers of a world's map from geometry built once, rather than emitting the
+ * vertices of every visible tile every frame. Each layer is split into square chunks of tiles,
+ * and the static tiles of each chunk are stored in a {@link SpriteCache}, so drawing a layer is
+ * a single cached draw per chunk on screen.
+ *
+ * <p>Animated tiles, such as working systems, can't be cached, so they are drawn each frame with
+ * a batch instead. Room is still kept for them in the cache, so that when a system changes state
+ * only the chunk it is in needs to be rebuilt, in place.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class CachedMapRenderer implements SystemRegistry.Listener, Disposable {
+  /** The width and height of each chunk, in tiles. */
+  public static final int CHUNK_SIZE = 16;
+
+  private final World world;
+  private final TiledMap map;
+  /** The indices of the layers the world draws, the only ones cached. */
+  private final int[] cachedLayerIds;
+  private final SpriteCache cache;
+  private final SpriteBatch batch = new SpriteBatch();
+  private final float tileWidth;
+  private final float tileHeight;
+  private final int chunkColumns;
+  private final int chunkRows;
+
+  /** The cache of each chunk of each layer, by layer index, or -1 if it has no tiles. */
+  private final int[][] cacheIds;
+  /** The number of tiles each chunk's cache was first built with, which it can't exceed. */
+  private final int[][] cacheCapacities;
+  /** The coordinates of the animated tiles in each chunk, as x and y pairs. */
+  private final IntArray[][] animatedTiles;
+  private final boolean[][] dirtyChunks;
+  private boolean anyDirty = false;
+
+  /**
+   * Build the caches for every tile layer of a world's map, and listen for system changes that
+   * redraw its tiles.
+   *
+   * @param world The world to render the map of
+   * */
+  public CachedMapRenderer(World world) {
+    this.world = world;
+    map = world.map;
+    cachedLayerIds = new int[world.backgroundLayersIds.length
+        + world.foregroundLayersIds.length];
+    System.arraycopy(world.backgroundLayersIds, 0, cachedLayerIds, 0,
+        world.backgroundLayersIds.length);
+    System.arraycopy(world.foregroundLayersIds, 0, cachedLayerIds,
+        world.backgroundLayersIds.length, world.foregroundLayersIds.length);
+    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) map.getLayers()
+        .get("collision_layer");
+    tileWidth = collisionLayer.getTileWidth();
+    tileHeight = collisionLayer.getTileHeight();
+    chunkColumns = (collisionLayer.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    chunkRows = (collisionLayer.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+    int layerCount = map.getLayers().getCount();
+    cacheIds = new int[layerCount][];
+    cacheCapacities = new int[layerCount][];
+    animatedTiles = new IntArray[layerCount][];
+    dirtyChunks = new boolean[layerCount][];
+
+    cache = new SpriteCache(Math.max(1, countTiles()), false);
+    buildAllChunks();
+    world.systemRegistry.addListener(this);
+  }
+
+  /**
+   * Draw the given layers, in order, as seen by a camera.
+   *
+   * @param camera The camera to draw with
+   * @param layerIds The indices of the layers to draw
+   * */
+  public void render(OrthographicCamera camera, int[] layerIds) {
+    if (anyDirty) {
+      rebuildDirtyChunks();
+    }
+    AnimatedTiledMapTile.updateAnimationBaseTime();
+
+    float halfWidth = camera.viewportWidth * camera.zoom / 2;
+    float halfHeight = camera.viewportHeight * camera.zoom / 2;
+    float chunkWidth = CHUNK_SIZE * tileWidth;
+    float chunkHeight = CHUNK_SIZE * tileHeight;
+    int firstColumn = Math.max(0,
+        (int) Math.floor((camera.position.x - halfWidth) / chunkWidth));
+    int lastColumn = Math.min(chunkColumns - 1,
+        (int) Math.floor((camera.position.x + halfWidth) / chunkWidth));
+    int firstRow = Math.max(0, (int) Math.floor((camera.position.y - halfHeight) / chunkHeight));
+    int lastRow = Math.min(chunkRows - 1,
+        (int) Math.floor((camera.position.y + halfHeight) / chunkHeight));
+
+    for (int layerId : layerIds) {
+      MapLayer mapLayer = map.getLayers().get(layerId);
+      if (!mapLayer.isVisible() || cacheIds[layerId] == null) {
+        continue;
+      }
+      TiledMapTileLayer layer = (TiledMapTileLayer) mapLayer;
+
+      Gdx.gl.glEnable(GL20.GL_BLEND);
+      Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+      cache.setProjectionMatrix(camera.combined);
+      cache.begin();
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+          int cacheId = cacheIds[layerId][row * chunkColumns + column];
+          if (cacheId != -1) {
+            cache.draw(cacheId);
+          }
+        }
+      }
+      cache.end();
+
+      batch.setProjectionMatrix(camera.combined);
+      batch.setColor(1f, 1f, 1f, layer.getOpacity());
+      batch.begin();
+      for (int row = firstRow; row <= lastRow; row++) {
+        for (int column = firstColumn; column <= lastColumn; column++) {
+          IntArray animated = animatedTiles[layerId][row * chunkColumns + column];
+          for (int i = 0; i < animated.size; i += 2) {
+            drawAnimatedTile(layer, animated.get(i), animated.get(i + 1));
+          }
+        }
+      }
+      batch.end();
+      batch.setColor(1f, 1f, 1f, 1f);
+    }
+  }
+
+  /**
+   * Get a batch set up for drawing in the same space as the map, for drawing entities between
+   * layers.
+   *
+   * @return The renderer's batch
+   * */
+  public Batch getBatch() {
+    return batch;
+  }
+
+  /**
+   * Mark the chunk containing a tile as needing to be rebuilt before it is next drawn.
+   *
+   * @param x The x coordinate of the tile that changed
+   * @param y The y coordinate of the tile that changed
+   * */
+  public void markDirty(int x, int y) {
+    int column = x / CHUNK_SIZE;
+    int row = y / CHUNK_SIZE;
+    if (x < 0 || y < 0 || column >= chunkColumns || row >= chunkRows) {
+      return;
+    }
+    for (boolean[] layerChunks : dirtyChunks) {
+      if (layerChunks != null) {
+        layerChunks[row * chunkColumns + column] = true;
+      }
+    }
+    anyDirty = true;
+  }
+
+  @Override
+  public void systemStateChanged(int id, RectangleMapObject system, World.SystemStates oldState,
+      World.SystemStates newState) {
+    int x = world.systemRegistry.getTileX(id);
+    int y = world.systemRegistry.getTileY(id);
+    markDirty(x, y);
+    // Standalone systems have a light above them
+    markDirty(x, y + 1);
+  }
+
+  @Override
+  public void dispose() {
+    cache.dispose();
+    batch.dispose();
+  }
+
+  private int countTiles() {
+    int count = 0;
+    for (int layerId : cachedLayerIds) {
+      MapLayer mapLayer = map.getLayers().get(layerId);
+      if (mapLayer instanceof TiledMapTileLayer) {
+        TiledMapTileLayer layer = (TiledMapTileLayer) mapLayer;
+        for (int y = 0; y < layer.getHeight(); y++) {
+          for (int x = 0; x < layer.getWidth(); x++) {
+            if (layer.getCell(x, y) != null) {
+              count++;
+            }
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  private void buildAllChunks() {
+    cache.clear();
+    for (int layerId : cachedLayerIds) {
+      MapLayer mapLayer = map.getLayers().get(layerId);
+      if (!(mapLayer instanceof TiledMapTileLayer)) {
+        continue;
+      }
+      int chunkCount = chunkColumns * chunkRows;
+      cacheIds[layerId] = new int[chunkCount];
+      cacheCapacities[layerId] = new int[chunkCount];
+      animatedTiles[layerId] = new IntArray[chunkCount];
+      dirtyChunks[layerId] = new boolean[chunkCount];
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        animatedTiles[layerId][chunk] = new IntArray();
+        cacheIds[layerId][chunk] = buildChunk((TiledMapTileLayer) mapLayer, layerId, chunk, -1);
+      }
+    }
+    anyDirty = false;
+  }
+
+  private void rebuildDirtyChunks() {
+    for (int layerId = 0; layerId < dirtyChunks.length; layerId++) {
+      if (dirtyChunks[layerId] == null) {
+        continue;
+      }
+      TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(layerId);
+      for (int chunk = 0; chunk < dirtyChunks[layerId].length; chunk++) {
+        if (!dirtyChunks[layerId][chunk]) {
+          continue;
+        }
+        dirtyChunks[layerId][chunk] = false;
+        if (countChunkTiles(layer, chunk) > cacheCapacities[layerId][chunk]) {
+          // A cache can't be redefined with more tiles than it started with
+          buildAllChunks();
+          return;
+        }
+        if (cacheIds[layerId][chunk] != -1) {
+          buildChunk(layer, layerId, chunk, cacheIds[layerId][chunk]);
+        }
+      }
+    }
+    anyDirty = false;
+  }
+
+  /**
+   * Add the static tiles of a chunk to the cache, and record its animated tiles.
+   *
+   * @param layer The layer the chunk is in
+   * @param layerId The index of the layer
+   * @param chunk The index of the chunk
+   * @param cacheId The cache to redefine, or -1 to create a new one
+   * @return The id of the chunk's cache, or -1 if the chunk is empty
+   * */
+  private int buildChunk(TiledMapTileLayer layer, int layerId, int chunk, int cacheId) {
+    IntArray animated = animatedTiles[layerId][chunk];
+    animated.clear();
+    if (cacheId == -1) {
+      int tileCount = countChunkTiles(layer, chunk);
+      cacheCapacities[layerId][chunk] = tileCount;
+      if (tileCount == 0) {
+        return -1;
+      }
+      cache.beginCache();
+    } else {
+      cache.beginCache(cacheId);
+    }
+    cache.setColor(1f, 1f, 1f, layer.getOpacity());
+
+    int firstX = (chunk % chunkColumns) * CHUNK_SIZE;
+    int firstY = (chunk / chunkColumns) * CHUNK_SIZE;
+    int lastX = Math.min(layer.getWidth(), firstX + CHUNK_SIZE);
+    int lastY = Math.min(layer.getHeight(), firstY + CHUNK_SIZE);
+    for (int y = firstY; y < lastY; y++) {
+      for (int x = firstX; x < lastX; x++) {
+        Cell cell = layer.getCell(x, y);
+        if (cell == null) {
+          continue;
+        }
+        TiledMapTile tile = cell.getTile();
+        if (tile instanceof AnimatedTiledMapTile) {
+          animated.add(x);
+          animated.add(y);
+          if (cacheId == -1) {
+            // Keep room in the cache in case the tile stops animating
+            cache.add(tile.getTextureRegion(), getTileX(layer, tile, x),
+                getTileY(layer, tile, y), 0f, 0f);
+          }
+        } else {
+          cache.add(tile.getTextureRegion(), getTileX(layer, tile, x), getTileY(layer, tile, y));
+        }
+      }
+    }
+    return cache.endCache();
+  }
+
+  private int countChunkTiles(TiledMapTileLayer layer, int chunk) {
+    int firstX = (chunk % chunkColumns) * CHUNK_SIZE;
+    int firstY = (chunk / chunkColumns) * CHUNK_SIZE;
+    int count = 0;
+    for (int y = firstY; y < Math.min(layer.getHeight(), firstY + CHUNK_SIZE); y++) {
+      for (int x = firstX; x < Math.min(layer.getWidth(), firstX + CHUNK_SIZE); x++) {
+        if (layer.getCell(x, y) != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private void drawAnimatedTile(TiledMapTileLayer layer, int x, int y) {
+    Cell cell = layer.getCell(x, y);
+    if (cell != null) {
+      TiledMapTile tile = cell.getTile();
+      batch.draw(tile.getTextureRegion(), getTileX(layer, tile, x), getTileY(layer, tile, y));
+    }
+  }
+
+  private float getTileX(TiledMapTileLayer layer, TiledMapTile tile, int x) {
+    return x * tileWidth + tile.getOffsetX() + layer.getRenderOffsetX();
+  }
+
+  private float getTileY(TiledMapTileLayer layer, TiledMapTile tile, int y) {
+    return y * tileHeight + tile.getOffsetY() - layer.getRenderOffsetY();
+  }
+}
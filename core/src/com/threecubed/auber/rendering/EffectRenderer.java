@@ -0,0 +1,75 @@
+package com.threecubed.auber.rendering;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+
+/**
+ * Draws untextured effects, such as the teleporter ray, as quads of a white region of the atlas
+ * in the same batch as the entities. Unlike a
+ * {@link com.badlogic.gdx.graphics.glutils.ShapeRenderer}, this doesn't need the batch to be
+ * ended and restarted around each effect, and since the region shares the entities' texture it
+ * doesn't cause a flush either.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class EffectRenderer {
+  /** The number of floats per vertex of a batch: position, packed colour and texture coords. */
+  private static final int VERTEX_SIZE = 5;
+
+  private final TextureRegion whiteRegion;
+  private final float[] vertices = new float[VERTEX_SIZE * 4];
+
+  /**
+   * Create an effect renderer that draws with a white region.
+   *
+   * @param whiteRegion A region that is white all over
+   * */
+  public EffectRenderer(TextureRegion whiteRegion) {
+    this.whiteRegion = whiteRegion;
+  }
+
+  /**
+   * Draw a line as a quad, fading from one colour at its start to another at its end.
+   *
+   * @param batch The batch to draw to, which must already have begun
+   * @param x1 The x coordinate of the start of the line
+   * @param y1 The y coordinate of the start of the line
+   * @param x2 The x coordinate of the end of the line
+   * @param y2 The y coordinate of the end of the line
+   * @param width The width of the line
+   * @param startColor The colour at the start of the line
+   * @param endColor The colour at the end of the line
+   * */
+  public void line(Batch batch, float x1, float y1, float x2, float y2, float width,
+      Color startColor, Color endColor) {
+    float length = (float) Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+    if (length == 0) {
+      return;
+    }
+    // Offset each end by half the width, perpendicular to the line
+    float offsetX = -(y2 - y1) / length * width / 2;
+    float offsetY = (x2 - x1) / length * width / 2;
+    float startBits = startColor.toFloatBits();
+    float endBits = endColor.toFloatBits();
+
+    setVertex(0, x1 + offsetX, y1 + offsetY, startBits);
+    setVertex(1, x1 - offsetX, y1 - offsetY, startBits);
+    setVertex(2, x2 - offsetX, y2 - offsetY, endBits);
+    setVertex(3, x2 + offsetX, y2 + offsetY, endBits);
+    batch.draw(whiteRegion.getTexture(), vertices, 0, vertices.length);
+  }
+
+  private void setVertex(int vertex, float x, float y, float color) {
+    int i = vertex * VERTEX_SIZE;
+    vertices[i] = x;
+    vertices[i + 1] = y;
+    vertices[i + 2] = color;
+    // Sample the middle of the region, well away from its neighbours in the atlas
+    vertices[i + 3] = (whiteRegion.getU() + whiteRegion.getU2()) / 2;
+    vertices[i + 4] = (whiteRegion.getV() + whiteRegion.getV2()) / 2;
+  }
+}
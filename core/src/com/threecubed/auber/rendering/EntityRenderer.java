@@ -0,0 +1,87 @@
+package com.threecubed.auber.rendering;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Array;
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.World;
+import com.threecubed.auber.entities.GameEntity;
+
+
+/**
+ * Draws the entities the camera can see. Entities are looked up in the world's spatial grid
+ * around the camera rather than drawing every entity in the world, so the cost of a frame
+ * depends on how many entities are on screen, not how many exist. Entities are drawn in the
+ * same order as the world's entity list, so overlapping sprites layer the same way as before.
+ *
+ * <p>Effects, such as the teleporter ray, are drawn first in the same batch, so they sit beneath
+ * every entity and never force the batch to be restarted part way through.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class EntityRenderer {
+  /** Extra distance around the screen to draw entities in, covering rotated sprites' corners. */
+  private static final float CULLING_MARGIN = 4f;
+
+  private final Array<GameEntity> nearbyEntities = new Array<>();
+  private final Array<GameEntity> visibleEntities = new Array<>();
+  private final EffectRenderer effects;
+
+  // ------------------METRICS------------------
+  /** The number of entities drawn in the last frame. */
+  public int drawnEntities = 0;
+  /** The number of entities near the camera that were skipped as off-screen in the last frame. */
+  public int culledEntities = 0;
+
+  /**
+   * Create an entity renderer.
+   *
+   * @param regions The regions of the atlas the entities are drawn from
+   * */
+  public EntityRenderer(RegionCache regions) {
+    effects = new EffectRenderer(regions.getRegion("white"));
+  }
+
+  /**
+   * Draw every entity that is at least partly on screen.
+   *
+   * @param world The game world
+   * @param batch The batch to draw to, which must already have begun
+   * @param alpha How far between the previous and current tick to render entities
+   * */
+  public void render(World world, Batch batch, float alpha) {
+    OrthographicCamera camera = world.camera;
+    float halfWidth = camera.viewportWidth * camera.zoom / 2 + CULLING_MARGIN;
+    float halfHeight = camera.viewportHeight * camera.zoom / 2 + CULLING_MARGIN;
+    float left = camera.position.x - halfWidth;
+    float bottom = camera.position.y - halfHeight;
+    float right = camera.position.x + halfWidth;
+    float top = camera.position.y + halfHeight;
+
+    // The grid holds entities where they were at the end of the last tick, its padding covers
+    // how far they are drawn back towards their previous position, and any that jumped further
+    // are always returned
+    world.entityGrid.query(left, bottom, halfWidth * 2, halfHeight * 2, nearbyEntities);
+
+    visibleEntities.clear();
+    for (GameEntity entity : nearbyEntities) {
+      float x = entity.getInterpolatedX(alpha);
+      float y = entity.getInterpolatedY(alpha);
+      if (x + entity.width > left && x < right
+          && y + entity.height > bottom && y < top) {
+        visibleEntities.add(entity);
+      }
+    }
+    drawnEntities = visibleEntities.size;
+    culledEntities = nearbyEntities.size - visibleEntities.size;
+
+    for (GameEntity entity : visibleEntities) {
+      entity.renderEffects(batch, effects, alpha);
+    }
+    for (GameEntity entity : visibleEntities) {
+      entity.render(batch, camera, alpha);
+    }
+  }
+}
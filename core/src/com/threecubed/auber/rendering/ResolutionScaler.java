@@ -0,0 +1,172 @@
+package com.threecubed.auber.rendering;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+
+
+/**
+ * Renders the world into an offscreen frame buffer smaller than the window when rendering is
+ * taking too long, then stretches it over the window with nearest neighbour filtering. The
+ * resolution is lowered a step at a time while rendering is over the target, and raised again
+ * once there has been headroom for a while, in the same way as the
+ * {@link com.threecubed.auber.timing.FrameGovernor} lowers fidelity.
+ *
+ * <p>Most of the cost of drawing at a high resolution is paid by the GPU after the draw calls
+ * have returned, so the scaled pass is timed from {@link ResolutionScaler#begin()} until the GPU
+ * has finished it, waiting for it at the end of {@link ResolutionScaler#end(Batch)}. Waiting
+ * gives up some overlap between the CPU and GPU, but means the resolution only follows the cost
+ * of drawing the world, never a slow simulation tick or waiting for vsync. Anything drawn after
+ * {@link ResolutionScaler#end(Batch)}, such as the HUD, is drawn at the window's full
+ * resolution.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class ResolutionScaler implements Disposable {
+  /** The lowest fraction of the window's resolution the world is rendered at. */
+  public static final float MIN_SCALE = 0.5f;
+  /** The amount the scale changes by at a time. */
+  public static final float SCALE_STEP = 0.125f;
+
+  /** The number of consecutive frames over the target before the resolution is lowered. */
+  private static final int FRAMES_TO_SHRINK = 10;
+  /** The number of consecutive frames with headroom before the resolution is raised. */
+  private static final int FRAMES_TO_GROW = 180;
+  /** The fraction of the target rendering must be under to count as having headroom. */
+  private static final float HEADROOM = 0.75f;
+  /** The weight given to the newest frame in the smoothed render time. */
+  private static final float SMOOTHING = 0.1f;
+
+  private final float targetRenderTime;
+  private long passStart;
+  private float scale = 1f;
+  private int framesOverTarget = 0;
+  private int framesWithHeadroom = 0;
+  private float averageRenderTime = 0f;
+  private boolean measured = false;
+
+  private FrameBuffer frameBuffer;
+
+  // ------------------METRICS------------------
+  /** The number of times the resolution has been lowered. */
+  public long shrinks = 0;
+  /** The number of times the resolution has been raised. */
+  public long grows = 0;
+
+  /**
+   * Initialise a scaler that aims for the given render time.
+   *
+   * @param targetRenderTime The time rendering each frame should take at most, in seconds
+   * */
+  public ResolutionScaler(float targetRenderTime) {
+    if (targetRenderTime <= 0) {
+      throw new IllegalArgumentException("Target render time must be positive");
+    }
+    this.targetRenderTime = targetRenderTime;
+  }
+
+  public float getScale() {
+    return scale;
+  }
+
+  /**
+   * Record how long the last scaled pass took, lowering or raising the resolution if passes have
+   * been consistently over the target or under it.
+   *
+   * @param renderTime The time the pass took to complete on the GPU, in seconds
+   * */
+  private void update(float renderTime) {
+    if (!measured) {
+      averageRenderTime = renderTime;
+      measured = true;
+    } else {
+      averageRenderTime += (renderTime - averageRenderTime) * SMOOTHING;
+    }
+
+    if (averageRenderTime > targetRenderTime) {
+      framesWithHeadroom = 0;
+      if (++framesOverTarget >= FRAMES_TO_SHRINK && scale > MIN_SCALE) {
+        scale = Math.max(scale - SCALE_STEP, MIN_SCALE);
+        shrinks++;
+        framesOverTarget = 0;
+      }
+    } else if (averageRenderTime < targetRenderTime * HEADROOM) {
+      framesOverTarget = 0;
+      if (++framesWithHeadroom >= FRAMES_TO_GROW && scale < 1f) {
+        scale = Math.min(scale + SCALE_STEP, 1f);
+        grows++;
+        framesWithHeadroom = 0;
+      }
+    } else {
+      framesOverTarget = 0;
+      framesWithHeadroom = 0;
+    }
+  }
+
+  /**
+   * Start drawing to the frame buffer, which is cleared to black. The buffer is recreated if the
+   * scale or the size of the window has changed since the last frame.
+   * */
+  public void begin() {
+    passStart = TimeUtils.nanoTime();
+    int width = Math.max((int) (Gdx.graphics.getBackBufferWidth() * scale), 1);
+    int height = Math.max((int) (Gdx.graphics.getBackBufferHeight() * scale), 1);
+    if (frameBuffer == null || frameBuffer.getWidth() != width
+        || frameBuffer.getHeight() != height) {
+      if (frameBuffer != null) {
+        frameBuffer.dispose();
+      }
+      frameBuffer = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+      frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest,
+          Texture.TextureFilter.Nearest);
+    }
+
+    // Also sets the viewport to the size of the buffer
+    frameBuffer.begin();
+    Gdx.gl.glClearColor(0, 0, 0, 1);
+    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+  }
+
+  /**
+   * Stop drawing to the frame buffer and draw it over the whole window, then wait for the GPU to
+   * finish and adjust the resolution of the next frame by how long the pass took.
+   *
+   * @param batch A batch whose projection covers the window, which must not have begun
+   * */
+  public void end(Batch batch) {
+    frameBuffer.end();
+
+    Texture texture = frameBuffer.getColorBufferTexture();
+    // The buffer covers the whole window and is opaque, so there is nothing to blend with
+    batch.disableBlending();
+    batch.begin();
+    // Frame buffer textures are upside down
+    batch.draw(texture, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), 0, 0,
+        texture.getWidth(), texture.getHeight(), false, true);
+    batch.end();
+    batch.enableBlending();
+
+    Gdx.gl.glFinish();
+    update((TimeUtils.nanoTime() - passStart) / 1e9f);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("scale %.3f, render %.2fms, %d shrinks, %d grows", scale,
+        averageRenderTime * 1e3f, shrinks, grows);
+  }
+
+  @Override
+  public void dispose() {
+    if (frameBuffer != null) {
+      frameBuffer.dispose();
+    }
+  }
+}
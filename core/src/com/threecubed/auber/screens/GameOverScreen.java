@@ -22,7 +22,7 @@ public class GameOverScreen extends ScreenAdapter {
   AuberGame game;
 
   BitmapFont font = new BitmapFont();
-  SpriteBatch batch = new SpriteBatch();
+  SpriteBatch batch;
   GlyphLayout layout = new GlyphLayout();
   String resultText;
 
@@ -34,6 +34,9 @@ public class GameOverScreen extends ScreenAdapter {
    * */
   public GameOverScreen(AuberGame game, boolean userWon) {
     this.game = game;
+    batch = game.batch;
+    batch.getProjectionMatrix().setToOrtho2D(0, 0, Gdx.graphics.getWidth(),
+        Gdx.graphics.getHeight());
     font.getData().setScale(2);
 
     resultText = "Game Over, you ";
@@ -54,6 +57,8 @@ public class GameOverScreen extends ScreenAdapter {
 
     if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
       game.setScreen(new MenuScreen(game));
+      // This screen has been disposed
+      return;
     }
 
     batch.begin();
@@ -61,5 +66,16 @@ public class GameOverScreen extends ScreenAdapter {
         300 + (Gdx.graphics.getHeight() - layout.height) / 2);
     batch.end();
   }
-  
+
+  @Override
+  public void hide() {
+    // A new screen is created for every game over
+    dispose();
+  }
+
+  @Override
+  public void dispose() {
+    // The batch belongs to the game
+    font.dispose();
+  }
 }
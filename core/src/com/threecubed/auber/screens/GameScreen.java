@@ -3,15 +3,16 @@ package com.threecubed.auber.screens;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ScreenAdapter;
-import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.utils.JsonValue;
 import com.threecubed.auber.AuberGame;
 import com.threecubed.auber.World;
 import com.threecubed.auber.entities.*;
+import com.threecubed.auber.rendering.CachedMapRenderer;
+import com.threecubed.auber.rendering.EntityRenderer;
+import com.threecubed.auber.rendering.ResolutionScaler;
 import com.threecubed.auber.save.Save;
 import com.threecubed.auber.ui.GameUi;
 
@@ -29,9 +30,22 @@ public class GameScreen extends ScreenAdapter {
   Sprite stars;
 
   SpriteBatch screenBatch = new SpriteBatch();
+  CachedMapRenderer renderer;
+  /** Draws only the entities on screen. */
+  private final EntityRenderer entityRenderer;
+  /** The share of the frame budget rendering may take before the resolution is lowered. */
+  private static final float RENDER_BUDGET = World.FRAME_BUDGET / 2;
+  /** Lowers the resolution the world is drawn at when rendering takes longer than its budget. */
+  private final ResolutionScaler resolution = new ResolutionScaler(RENDER_BUDGET);
 
   int workingSystems = 0;
 
+  /** The number of frames between each debug log of the frame governor's metrics. */
+  private static final int GOVERNOR_LOG_INTERVAL = 300;
+
+  /** Time that has elapsed but not yet been simulated, in seconds. */
+  private float accumulator = 0f;
+
   /**
    * Initialise the game screen with the {@link AuberGame} object and add a few entities.
    *
@@ -42,26 +56,16 @@ public class GameScreen extends ScreenAdapter {
   public GameScreen(AuberGame game, boolean demoMode, boolean load, World.Difficulty difficulty) {
     if(!load){
       this.game = game;
-      world = new World(game, demoMode, load, difficulty);
-
-      for (int i = 0; i < world.MAX_INFILTRATORS_IN_GAME; i++) {
-        world.queueEntityAdd(new Infiltrator(world));
-        world.infiltratorsAddedCount++;
-      }
-      for (int i = 0; i < world.NPC_COUNT; i++) {
-        world.queueEntityAdd(new Civilian(world));
-      }
-
-      for (int i = 0; i < world.POWER_UP_COUNT; i++) {
-        world.queueEntityAdd(new PowerUp(world));
-      }
+      world = new World(game.assets.getRegions(), demoMode, load, difficulty);
+      world.spawnEntities();
     }else{
       Save save = new Save();
       JsonValue savedValues = save.loadJson();
       String strDifficulty = savedValues.getString("difficulty");
 
       this.game = game;
-      world = new World(game, demoMode, load, World.Difficulty.valueOf(strDifficulty));
+      world = new World(game.assets.getRegions(), demoMode, load,
+          World.Difficulty.valueOf(strDifficulty));
 
       for (int i = 0; i < savedValues.get("entityPositionX").size; i++) {
         //1=Civilian, 2=Infiltrator, 3=Player, 4=Projectile, 5=PowerUp
@@ -85,7 +89,9 @@ public class GameScreen extends ScreenAdapter {
         }
       }
     }
-    stars = game.atlas.createSprite("stars");
+    stars = game.assets.getRegions().createSprite("stars");
+    entityRenderer = new EntityRenderer(game.assets.getRegions());
+    renderer = new CachedMapRenderer(world);
   }
 
   @Override
@@ -93,60 +99,93 @@ public class GameScreen extends ScreenAdapter {
     if (Gdx.input.isKeyPressed(Input.Keys.ESCAPE)) {
       game.setScreen(new MenuScreen(game));
     }
-    // Add any queued entities
-    world.updateEntities();
+    world.governor.beginFrame();
+    world.player.controller.poll(world);
+
+    // Run as many fixed simulation steps as have elapsed, carrying any remainder over to the
+    // next frame. Long frames are clamped so the simulation can't fall ever further behind.
+    accumulator += Math.min(delta, World.MAX_FRAME_TIME);
+    float tickLength = world.getTickLength();
+    world.governor.beginUpdate();
+    while (accumulator >= tickLength) {
+      world.update();
+      accumulator -= tickLength;
+    }
+    world.governor.endUpdate();
+    float alpha = accumulator / tickLength;
+
+    world.governor.beginRender();
 
-    // Set the background color
-    Gdx.gl.glClearColor(0, 0, 0, 1);
-    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    // Draw the world offscreen, at a resolution that keeps rendering within its budget
+    resolution.begin();
 
     screenBatch.begin();
     screenBatch.draw(stars, 0, 0);
     screenBatch.end();
 
-    OrthogonalTiledMapRenderer renderer = world.renderer;
-    renderer.setView(world.camera);
-    renderer.render(world.backgroundLayersIds);
+    // Follow the player's interpolated position so the camera doesn't stutter between ticks
+    world.camera.position.set(world.player.getInterpolatedX(alpha),
+        world.player.getInterpolatedY(alpha), 0);
+    world.camera.update();
 
+    renderer.render(world.camera, world.backgroundLayersIds);
 
     Batch batch = renderer.getBatch();
-    // Iterate over all entities. Perform movement logic and render them.
+    batch.setProjectionMatrix(world.camera.combined);
     batch.begin();
-    world.infiltratorCount = 0;
-    for (GameEntity entity : world.getEntities()) {
-      entity.update(world);
-      entity.render(batch, world.camera);
-
-      if (entity instanceof Player) {
-        world.camera.position.set(entity.position.x, entity.position.y, 0);
-        world.camera.update();
-      } else if (entity instanceof Infiltrator) {
-        Infiltrator infiltrator = (Infiltrator) entity;
-        if (infiltrator.aiEnabled) {
-          world.infiltratorCount += 1;
-        }
-      }
-    }
+    entityRenderer.render(world, batch, alpha);
     batch.end();
-    renderer.render(world.foregroundLayersIds);
+    renderer.render(world.camera, world.foregroundLayersIds);
+    resolution.end(screenBatch);
 
-    if (world.infiltratorCount < World.MAX_INFILTRATORS_IN_GAME
-        && world.infiltratorsAddedCount < world.MAX_INFILTRATORS) {
-      Infiltrator newInfiltrator = new Infiltrator(world);
-      while (newInfiltrator.entityOnScreen(world)) {
-        newInfiltrator.moveToRandomLocation(world);
-      }
-      world.queueEntityAdd(newInfiltrator);
-      world.infiltratorsAddedCount++;
+    // Draw the UI at the window's full resolution
+    world.ui.render(world, screenBatch);
+    world.governor.endRender();
+    world.governor.endFrame();
+    if (world.governor.frames % GOVERNOR_LOG_INTERVAL == 0) {
+      Gdx.app.debug("FrameGovernor", world.governor.toString());
+      Gdx.app.debug("ResolutionScaler", resolution.toString());
     }
+    checkForEndState();
+  }
 
-    // Draw the UI
-    world.ui.render(world, screenBatch);
-    world.checkForEndState();
+  /**
+   * Start a new game on this screen, resetting the world rather than building a new one so the
+   * map, renderers and UI are all reused.
+   *
+   * @param difficulty The difficulty of the new game
+   * */
+  public void restart(World.Difficulty difficulty) {
+    world.reset(difficulty);
+    world.spawnEntities();
+    accumulator = 0f;
+  }
+
+  /**
+   * Check to see if any of the end conditions have been met, if so update the screen.
+   * */
+  private void checkForEndState() {
+    switch (world.getEndState()) {
+      case LOST:
+        if (!world.demoMode) {
+          game.setScreen(new GameOverScreen(game, false));
+        } else {
+          restart(world.difficulty);
+        }
+        break;
+      case WON:
+        game.setScreen(new GameOverScreen(game, true));
+        break;
+      default:
+        break;
+    }
   }
 
   @Override
   public void dispose() {
-    world.renderer.dispose();
+    screenBatch.dispose();
+    resolution.dispose();
+    renderer.dispose();
+    world.ui.dispose();
   }
 }
@@ -0,0 +1,66 @@
+package com.threecubed.auber.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ScreenAdapter;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.threecubed.auber.AuberGame;
+import com.threecubed.auber.World;
+
+
+/**
+ * The first screen shown, which loads the game's assets a little each frame while drawing how
+ * far it has got, then moves on to the {@link MenuScreen}.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class LoadingScreen extends ScreenAdapter {
+  private static final float PROGRESS_BAR_WIDTH = 600f;
+  private static final float PROGRESS_BAR_HEIGHT = 20f;
+
+  AuberGame game;
+  ShapeRenderer shapeRenderer = new ShapeRenderer();
+
+  /**
+   * Instantiate the screen with the {@link AuberGame} object, whose assets should already be
+   * queued.
+   *
+   * @param game The game object
+   * */
+  public LoadingScreen(AuberGame game) {
+    this.game = game;
+  }
+
+  @Override
+  public void render(float deltaTime) {
+    if (game.assets.update()) {
+      game.atlas = game.assets.getAtlas();
+      World.setBaseMap(game.assets.getMap());
+      game.setScreen(new MenuScreen(game));
+      dispose();
+      return;
+    }
+
+    // Set the background color
+    Gdx.gl.glClearColor(0, 0, 0, 1);
+    Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+    float x = (Gdx.graphics.getWidth() - PROGRESS_BAR_WIDTH) / 2;
+    float y = (Gdx.graphics.getHeight() - PROGRESS_BAR_HEIGHT) / 2;
+    shapeRenderer.begin(ShapeType.Filled);
+    shapeRenderer.setColor(Color.DARK_GRAY);
+    shapeRenderer.rect(x, y, PROGRESS_BAR_WIDTH, PROGRESS_BAR_HEIGHT);
+    shapeRenderer.setColor(Color.WHITE);
+    shapeRenderer.rect(x, y, PROGRESS_BAR_WIDTH * game.assets.getProgress(), PROGRESS_BAR_HEIGHT);
+    shapeRenderer.end();
+  }
+
+  @Override
+  public void dispose() {
+    shapeRenderer.dispose();
+  }
+}
@@ -5,12 +5,12 @@ import com.badlogic.gdx.Graphics.DisplayMode;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ScreenAdapter;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.math.Vector2;
 import com.threecubed.auber.AuberGame;
+import com.threecubed.auber.RegionCache;
 import com.threecubed.auber.World;
 import com.threecubed.auber.save.Save;
 import com.threecubed.auber.ui.Button;
@@ -49,11 +49,16 @@ public class MenuScreen extends ScreenAdapter {
   public MenuScreen(final AuberGame game) {
     this.game = game;
 
-    spriteBatch = new SpriteBatch();
+    // Share the game's batch, the menu is rebuilt every time it is shown
+    spriteBatch = game.batch;
+    spriteBatch.getProjectionMatrix().setToOrtho2D(0, 0, Gdx.graphics.getWidth(),
+        Gdx.graphics.getHeight());
 
-    background = game.atlas.createSprite("stars");
-    instructions = game.atlas.createSprite("instructions");
-    title = game.atlas.createSprite("auber_logo");
+    // Every sprite is a region of the game's atlas, so the menu is drawn from a single texture
+    RegionCache regions = game.assets.getRegions();
+    background = regions.createSprite("stars");
+    instructions = regions.createSprite("instructions");
+    title = regions.createSprite("auber_logo");
 
 //    Runnable onPlayClick = new Runnable() {
 //      @Override
@@ -69,59 +74,59 @@ public class MenuScreen extends ScreenAdapter {
     Runnable onDemoClick = new Runnable() {
       @Override
       public void run() {
-        game.setScreen(new GameScreen(game, true, false, World.Difficulty.HARD));
+        game.startGame(true, World.Difficulty.HARD);
       }
     };
 
     demoButton = new Button(
             new Vector2(Gdx.graphics.getWidth() / 4, Gdx.graphics.getHeight() / 2 - 150f),
-            1f, game.atlas.createSprite("demoButton"), game, onDemoClick);
+            1f, regions.createSprite("demoButton"), game, onDemoClick);
 
     Runnable onLoadClick = new Runnable() {
       @Override
       public void run() {
-        game.setScreen(new GameScreen(game, false, true, World.Difficulty.HARD));
+        game.loadGame();
       }
     };
 
     loadButton = new Button(
             new Vector2(Gdx.graphics.getWidth() / 4, Gdx.graphics.getHeight() / 2 - 300f),
-            1f, new Sprite(new Texture(Gdx.files.internal("individual_sprites/loadButton.png"))), game, onLoadClick);
+            1f, regions.createSprite("loadButton"), game, onLoadClick);
 
 
 
     Runnable onEasyClick = new Runnable() {
       @Override
       public void run() {
-        game.setScreen(new GameScreen(game, false, false, World.Difficulty.EASY));
+        game.startGame(false, World.Difficulty.EASY);
       }
     };
 
     easyButton = new Button(
             new Vector2(Gdx.graphics.getWidth() / 4 - 200, Gdx.graphics.getHeight() / 2 + 50),
-            1f, new Sprite(new Texture(Gdx.files.internal("individual_sprites/easyButton.png"))), game, onEasyClick);
+            1f, regions.createSprite("easyButton"), game, onEasyClick);
 
     Runnable onMediumClick = new Runnable() {
       @Override
       public void run() {
-        game.setScreen(new GameScreen(game,false, false, World.Difficulty.MEDIUM));
+        game.startGame(false, World.Difficulty.MEDIUM);
       }
     };
 
     mediumButton = new Button(
             new Vector2(Gdx.graphics.getWidth() / 4, Gdx.graphics.getHeight() / 2 + 50),
-            1f, new Sprite(new Texture(Gdx.files.internal("individual_sprites/mediumButton.png"))), game, onMediumClick);
+            1f, regions.createSprite("mediumButton"), game, onMediumClick);
 
     Runnable onHardClick = new Runnable() {
       @Override
       public void run() {
-        game.setScreen(new GameScreen(game,false, false, World.Difficulty.HARD));
+        game.startGame(false, World.Difficulty.HARD);
       }
     };
 
     hardButton = new Button(
             new Vector2(Gdx.graphics.getWidth() / 4 + 200, Gdx.graphics.getHeight() / 2 + 50),
-            1f, new Sprite(new Texture(Gdx.files.internal("individual_sprites/hardButton.png"))), game, onHardClick);
+            1f, regions.createSprite("hardButton"), game, onHardClick);
   }
 
 
@@ -132,7 +137,7 @@ public class MenuScreen extends ScreenAdapter {
       Gdx.graphics.setFullscreenMode(currentDisplayMode);
     }
     if (Gdx.input.isKeyJustPressed(Input.Keys.D)) {
-      game.setScreen(new GameScreen(game, true, false, World.Difficulty.HARD));
+      game.startGame(true, World.Difficulty.HARD);
     }
 
     // Set the background color
@@ -160,4 +165,15 @@ public class MenuScreen extends ScreenAdapter {
 
     spriteBatch.end();
   }
+
+  @Override
+  public void hide() {
+    // A new menu is created whenever the menu is shown again
+    dispose();
+  }
+
+  @Override
+  public void dispose() {
+    // The batch and the sprites' textures belong to the game, so nothing else needs freeing
+  }
 }
@@ -0,0 +1,76 @@
+package com.threecubed.auber.simulation;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.World;
+import com.threecubed.auber.input.PlayerController;
+
+
+/**
+ * Runs a single game of Auber as fast as possible, without rendering. The world is ticked in
+ * exactly the same way as it is by the game screen, with input coming from the given
+ * {@link PlayerController}.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class Simulation {
+  public final World world;
+
+  /**
+   * Initialise a new game to simulate.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param difficulty The difficulty of the game
+   * @param demoMode Whether to run the game in demo mode, where the player takes no part
+   * @param controller The controller that drives the player
+   * @param seed The seed for the world's random number generator
+   * */
+  public Simulation(RegionCache regions, World.Difficulty difficulty, boolean demoMode,
+      PlayerController controller, long seed) {
+    world = new World(regions, demoMode, false, difficulty, seed);
+    world.player.controller = controller;
+    world.spawnEntities();
+  }
+
+  /**
+   * Simulate the game until it ends or the tick limit is reached.
+   *
+   * @param maxTicks The maximum number of ticks to simulate
+   * @return The outcome of the simulation
+   * */
+  public Result run(long maxTicks) {
+    long startTime = TimeUtils.nanoTime();
+    World.EndStates endState = World.EndStates.RUNNING;
+    while (endState == World.EndStates.RUNNING && world.tick < maxTicks) {
+      world.player.controller.poll(world);
+      world.update();
+      endState = world.getEndState();
+    }
+    return new Result(world.difficulty, endState, world.tick, TimeUtils.nanoTime() - startTime);
+  }
+
+  /** The outcome of a single simulated game. */
+  public static class Result {
+    public final World.Difficulty difficulty;
+    public final World.EndStates endState;
+    public final long ticks;
+    public final long elapsedNanos;
+
+    Result(World.Difficulty difficulty, World.EndStates endState, long ticks,
+        long elapsedNanos) {
+      this.difficulty = difficulty;
+      this.endState = endState;
+      this.ticks = ticks;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %s after %d ticks in %.1fms (%.1f ticks/ms)",
+          difficulty, endState, ticks, elapsedNanos / 1e6f,
+          ticks / Math.max(elapsedNanos / 1e6f, 1e-3f));
+    }
+  }
+}
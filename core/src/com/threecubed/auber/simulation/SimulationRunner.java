@@ -0,0 +1,158 @@
+package com.threecubed.auber.simulation;
+
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.World;
+import com.threecubed.auber.input.RandomController;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Runs many independent games of Auber in parallel. Every game owns its own {@link World}, map
+ * and random number generator, so games share nothing but the read-only base map and atlas
+ * regions and can be forked freely onto a {@link ForkJoinPool}.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class SimulationRunner {
+  private final ForkJoinPool pool;
+  private final RegionCache regions;
+
+  /**
+   * Initialise a runner with the given number of worker threads.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param threads The number of games to simulate at once
+   * */
+  public SimulationRunner(RegionCache regions, int threads) {
+    this.regions = regions;
+    pool = new ForkJoinPool(threads);
+  }
+
+  /**
+   * Simulate a batch of games at a single difficulty. Game {@code i} is seeded with
+   * {@code firstSeed + i}, so any game in the batch can be reproduced on its own.
+   *
+   * @param games The number of games to simulate
+   * @param difficulty The difficulty to play each game at
+   * @param demoMode Whether the player takes part in the games
+   * @param maxTicks The maximum number of ticks each game may run for
+   * @param firstSeed The seed of the first game
+   * @return The result of every game, in seed order
+   * */
+  public List<Simulation.Result> run(int games, World.Difficulty difficulty, boolean demoMode,
+      long maxTicks, long firstSeed) {
+    return pool.invoke(new BatchTask(difficulty, demoMode, maxTicks, firstSeed, 0, games));
+  }
+
+  /**
+   * Simulate the same batch of games at every difficulty, all difficulties running at once.
+   *
+   * @param games The number of games to simulate per difficulty
+   * @param demoMode Whether the player takes part in the games
+   * @param maxTicks The maximum number of ticks each game may run for
+   * @param firstSeed The seed of the first game at each difficulty
+   * @return The results of each difficulty, in seed order
+   * */
+  public Map<World.Difficulty, List<Simulation.Result>> sweep(final int games,
+      final boolean demoMode, final long maxTicks, final long firstSeed) {
+    return pool.invoke(new RecursiveTask<Map<World.Difficulty, List<Simulation.Result>>>() {
+      @Override
+      protected Map<World.Difficulty, List<Simulation.Result>> compute() {
+        Map<World.Difficulty, BatchTask> tasks = new EnumMap<>(World.Difficulty.class);
+        for (World.Difficulty difficulty : World.Difficulty.values()) {
+          BatchTask task = new BatchTask(difficulty, demoMode, maxTicks, firstSeed, 0, games);
+          task.fork();
+          tasks.put(difficulty, task);
+        }
+        Map<World.Difficulty, List<Simulation.Result>> results =
+            new EnumMap<>(World.Difficulty.class);
+        for (Map.Entry<World.Difficulty, BatchTask> entry : tasks.entrySet()) {
+          results.put(entry.getKey(), entry.getValue().join());
+        }
+        return results;
+      }
+    });
+  }
+
+  /** Stop the worker threads once every submitted game has finished. */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Summarise a batch of results, giving the win/loss/timeout counts and the average game length
+   * and speed.
+   *
+   * @param results The results to summarise
+   * @return A single line describing the batch
+   * */
+  public static String summarise(List<Simulation.Result> results) {
+    Map<World.EndStates, Integer> outcomes = new EnumMap<>(World.EndStates.class);
+    for (World.EndStates endState : World.EndStates.values()) {
+      outcomes.put(endState, 0);
+    }
+    long totalTicks = 0;
+    long totalNanos = 0;
+    for (Simulation.Result result : results) {
+      outcomes.put(result.endState, outcomes.get(result.endState) + 1);
+      totalTicks += result.ticks;
+      totalNanos += result.elapsedNanos;
+    }
+    int games = Math.max(results.size(), 1);
+    return String.format("%d games, %d won, %d lost, %d timed out, "
+        + "average %d ticks in %.1fms (%.1f ticks/ms)",
+        results.size(), outcomes.get(World.EndStates.WON), outcomes.get(World.EndStates.LOST),
+        outcomes.get(World.EndStates.RUNNING), totalTicks / games, totalNanos / 1e6f / games,
+        totalTicks / Math.max(totalNanos / 1e6f, 1e-3f));
+  }
+
+  /**
+   * Simulates a contiguous range of seeds, splitting in half until a single game remains.
+   * */
+  private class BatchTask extends RecursiveTask<List<Simulation.Result>> {
+    private static final long serialVersionUID = 1L;
+
+    private final World.Difficulty difficulty;
+    private final boolean demoMode;
+    private final long maxTicks;
+    private final long firstSeed;
+    private final int start;
+    private final int end;
+
+    BatchTask(World.Difficulty difficulty, boolean demoMode, long maxTicks, long firstSeed,
+        int start, int end) {
+      this.difficulty = difficulty;
+      this.demoMode = demoMode;
+      this.maxTicks = maxTicks;
+      this.firstSeed = firstSeed;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected List<Simulation.Result> compute() {
+      List<Simulation.Result> results = new ArrayList<>(Math.max(end - start, 0));
+      if (end - start == 1) {
+        long seed = firstSeed + start;
+        Simulation simulation = new Simulation(regions, difficulty, demoMode,
+            new RandomController(seed), seed);
+        results.add(simulation.run(maxTicks));
+      } else if (end - start > 1) {
+        int middle = (start + end) >>> 1;
+        BatchTask left = new BatchTask(difficulty, demoMode, maxTicks, firstSeed, start, middle);
+        BatchTask right = new BatchTask(difficulty, demoMode, maxTicks, firstSeed, middle, end);
+        left.fork();
+        results.addAll(right.compute());
+        results.addAll(0, left.join());
+      }
+      return results;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.threecubed.auber.simulation;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.World;
+import com.threecubed.auber.entities.Civilian;
+import com.threecubed.auber.entities.Infiltrator;
+import com.threecubed.auber.input.RandomController;
+import com.threecubed.auber.timing.UpdateProfiler;
+
+
+/**
+ * Fills a scaled up map with far more NPCs than any difficulty allows and measures how the world
+ * copes. The game runs in demo mode for a fixed number of ticks, whatever happens to the
+ * systems, so that every run does the same amount of work.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class StressTest {
+  /** The number of ticks between each sample of heap usage. */
+  private static final int HEAP_SAMPLE_INTERVAL = 60;
+
+  public final World world;
+  private final int civilians;
+  private final int infiltrators;
+  private final long setupNanos;
+
+  /**
+   * Initialise a world for stress testing.
+   *
+   * @param regions The regions of the atlas to create entity sprites from
+   * @param civilians The number of civilians to spawn
+   * @param infiltrators The number of infiltrators to spawn
+   * @param mapScale The number of tiles each tile of the map should cover in each direction
+   * @param seed The seed for the world's random number generator
+   * */
+  public StressTest(RegionCache regions, int civilians, int infiltrators, int mapScale,
+      long seed) {
+    this.civilians = civilians;
+    this.infiltrators = infiltrators;
+
+    long startTime = TimeUtils.nanoTime();
+    world = new World(regions, true, false, World.Difficulty.HARD, seed, mapScale);
+    world.player.controller = new RandomController(seed);
+    // Every infiltrator is spawned up front, none are added as others are caught
+    world.MAX_INFILTRATORS = infiltrators;
+    for (int i = 0; i < infiltrators; i++) {
+      world.queueEntityAdd(new Infiltrator(world));
+      world.infiltratorsAddedCount++;
+    }
+    for (int i = 0; i < civilians; i++) {
+      world.queueEntityAdd(new Civilian(world));
+    }
+    setupNanos = TimeUtils.nanoTime() - startTime;
+  }
+
+  /**
+   * Simulate the world for a number of ticks, measuring each one.
+   *
+   * @param ticks The number of ticks to simulate
+   * @return The measurements taken
+   * */
+  public Report run(long ticks) {
+    Runtime runtime = Runtime.getRuntime();
+    world.profiler.reset();
+    long pathsAtStart = world.navigationMesh.pathsGenerated;
+    long pathfindingNanosAtStart = world.navigationMesh.pathfindingNanos;
+
+    Report report = new Report(civilians, infiltrators, setupNanos);
+    for (long tick = 0; tick < ticks; tick++) {
+      long startTime = TimeUtils.nanoTime();
+      world.update();
+      long tickNanos = TimeUtils.nanoTime() - startTime;
+
+      report.ticks++;
+      report.totalTickNanos += tickNanos;
+      report.maxTickNanos = Math.max(report.maxTickNanos, tickNanos);
+
+      int queueDepth = world.pathRequests.getQueueDepth();
+      report.totalQueueDepth += queueDepth;
+      report.maxQueueDepth = Math.max(report.maxQueueDepth, queueDepth);
+
+      if (tick % HEAP_SAMPLE_INTERVAL == 0) {
+        report.peakHeapBytes = Math.max(report.peakHeapBytes,
+            runtime.totalMemory() - runtime.freeMemory());
+      }
+    }
+    report.profiler = world.profiler;
+    report.pathsGenerated = world.navigationMesh.pathsGenerated - pathsAtStart;
+    report.pathfindingNanos = world.navigationMesh.pathfindingNanos - pathfindingNanosAtStart;
+    return report;
+  }
+
+  /** The measurements taken during a stress test. */
+  public static class Report {
+    public final int civilians;
+    public final int infiltrators;
+    public final long setupNanos;
+    public long ticks = 0;
+    public long totalTickNanos = 0;
+    public long maxTickNanos = 0;
+    public long totalQueueDepth = 0;
+    public int maxQueueDepth = 0;
+    public long peakHeapBytes = 0;
+    public long pathsGenerated = 0;
+    public long pathfindingNanos = 0;
+    public UpdateProfiler profiler;
+
+    Report(int civilians, int infiltrators, long setupNanos) {
+      this.civilians = civilians;
+      this.infiltrators = infiltrators;
+      this.setupNanos = setupNanos;
+    }
+
+    @Override
+    public String toString() {
+      long tickCount = Math.max(ticks, 1);
+      return String.format("%d civilians, %d infiltrators, set up in %.1fms%n"
+          + "  tick: average %.3fms, worst %.3fms over %d ticks%n"
+          + "  subsystems: %s%n"
+          + "  pathfinding: %d paths in %.1fms, queue depth average %.1f, worst %d%n"
+          + "  heap: peak %.1fMB",
+          civilians, infiltrators, setupNanos / 1e6f,
+          totalTickNanos / 1e6f / tickCount, maxTickNanos / 1e6f, ticks,
+          profiler,
+          pathsGenerated, pathfindingNanos / 1e6f, (float) totalQueueDepth / tickCount,
+          maxQueueDepth,
+          peakHeapBytes / (1024f * 1024f));
+    }
+  }
+}
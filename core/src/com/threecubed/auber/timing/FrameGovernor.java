@@ -0,0 +1,184 @@
+package com.threecubed.auber.timing;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+
+/**
+ * Measures how long each frame spends updating and rendering, and lowers the fidelity of
+ * non-essential work when frames take longer than the budget. Fidelity is lowered one level at a
+ * time while frames are over budget, and raised again once there is headroom. Every decision is
+ * counted so that it can be reported alongside the frame timings.
+ *
+ * <p>Levels are cumulative:
+ * <ol>
+ *   <li>System warning arrows are only re-aimed every few frames.</li>
+ *   <li>Non-urgent path requests are deferred and spread over several ticks.</li>
+ *   <li>Civilians out of sight are stepped less often, and only those on screen at full rate.</li>
+ * </ol>
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class FrameGovernor {
+  /** The highest level of degradation. */
+  public static final int MAX_LEVEL = 3;
+  /** The level at which warning arrows stop being re-aimed every frame. */
+  public static final int SKIP_ARROW_ROTATION_LEVEL = 1;
+  /** The level at which non-urgent path requests are deferred. */
+  public static final int DEFER_PATHS_LEVEL = 2;
+  /** The level at which civilians out of sight are stepped less often. */
+  public static final int CIVILIAN_LOD_LEVEL = 3;
+
+  /** The number of consecutive frames over budget before fidelity is lowered. */
+  private static final int FRAMES_TO_DEGRADE = 10;
+  /** The number of consecutive frames with headroom before fidelity is raised. */
+  private static final int FRAMES_TO_RECOVER = 120;
+  /** The fraction of the budget a frame must be under to count as having headroom. */
+  private static final float HEADROOM = 0.75f;
+  /** The weight given to the newest frame in the smoothed frame time. */
+  private static final float SMOOTHING = 0.1f;
+
+  private long budgetNanos;
+  private int level = 0;
+  private int framesOverBudget = 0;
+  private int framesWithHeadroom = 0;
+
+  private long frameStart;
+  private long updateStart;
+  private long updateNanos;
+  private long renderStart;
+  private long renderNanos;
+
+  // ------------------METRICS------------------
+  /** The number of frames measured. */
+  public long frames = 0;
+  /** The smoothed time spent on a frame, in nanoseconds. */
+  public float averageFrameNanos = 0f;
+  /** The smoothed time spent updating the world in a frame, in nanoseconds. */
+  public float averageUpdateNanos = 0f;
+  /** The smoothed time spent rendering in a frame, in nanoseconds. */
+  public float averageRenderNanos = 0f;
+  /** The number of times fidelity has been lowered. */
+  public long degradations = 0;
+  /** The number of times fidelity has been raised. */
+  public long recoveries = 0;
+  /** The number of frames the warning arrows were left at their previous angle. */
+  public long skippedArrowRotations = 0;
+  /** The number of path requests that had to wait for a later tick. */
+  public long deferredPathRequests = 0;
+  /** The number of steps civilians skipped because of the governor. */
+  public long skippedCivilianSteps = 0;
+
+  /**
+   * Initialise a governor with the given frame budget.
+   *
+   * @param budget The time each frame should take at most, in seconds
+   * */
+  public FrameGovernor(float budget) {
+    setBudget(budget);
+  }
+
+  /**
+   * Set the time each frame should take at most.
+   *
+   * @param budget The frame budget, in seconds
+   * */
+  public void setBudget(float budget) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("Frame budget must be positive");
+    }
+    budgetNanos = (long) (budget * 1e9);
+  }
+
+  public float getBudget() {
+    return budgetNanos / 1e9f;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Check whether a given level of degradation is in effect.
+   *
+   * @param requiredLevel The level to check for
+   * @return True if the governor is at or above the given level
+   * */
+  public boolean isDegraded(int requiredLevel) {
+    return level >= requiredLevel;
+  }
+
+  /** Mark the start of a frame. */
+  public void beginFrame() {
+    frameStart = TimeUtils.nanoTime();
+    updateNanos = 0;
+    renderNanos = 0;
+  }
+
+  /** Mark the start of the world being updated. */
+  public void beginUpdate() {
+    updateStart = TimeUtils.nanoTime();
+  }
+
+  /** Mark the end of the world being updated. */
+  public void endUpdate() {
+    updateNanos += TimeUtils.nanoTime() - updateStart;
+  }
+
+  /** Mark the start of rendering. */
+  public void beginRender() {
+    renderStart = TimeUtils.nanoTime();
+  }
+
+  /** Mark the end of rendering. */
+  public void endRender() {
+    renderNanos += TimeUtils.nanoTime() - renderStart;
+  }
+
+  /**
+   * Mark the end of a frame, updating the metrics and the level of degradation.
+   * */
+  public void endFrame() {
+    long frameNanos = TimeUtils.nanoTime() - frameStart;
+    if (frames == 0) {
+      averageFrameNanos = frameNanos;
+      averageUpdateNanos = updateNanos;
+      averageRenderNanos = renderNanos;
+    } else {
+      averageFrameNanos += (frameNanos - averageFrameNanos) * SMOOTHING;
+      averageUpdateNanos += (updateNanos - averageUpdateNanos) * SMOOTHING;
+      averageRenderNanos += (renderNanos - averageRenderNanos) * SMOOTHING;
+    }
+    frames++;
+
+    if (averageFrameNanos > budgetNanos) {
+      framesWithHeadroom = 0;
+      if (++framesOverBudget >= FRAMES_TO_DEGRADE && level < MAX_LEVEL) {
+        level++;
+        degradations++;
+        framesOverBudget = 0;
+      }
+    } else if (averageFrameNanos < budgetNanos * HEADROOM) {
+      framesOverBudget = 0;
+      if (++framesWithHeadroom >= FRAMES_TO_RECOVER && level > 0) {
+        level--;
+        recoveries++;
+        framesWithHeadroom = 0;
+      }
+    } else {
+      framesOverBudget = 0;
+      framesWithHeadroom = 0;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("level %d, frame %.2fms (update %.2fms, render %.2fms), "
+        + "%d degradations, %d recoveries, %d arrow rotations skipped, "
+        + "%d path requests deferred, %d civilian steps skipped",
+        level, averageFrameNanos / 1e6f, averageUpdateNanos / 1e6f, averageRenderNanos / 1e6f,
+        degradations, recoveries, skippedArrowRotations, deferredPathRequests,
+        skippedCivilianSteps);
+  }
+}
@@ -0,0 +1,22 @@
+package com.threecubed.auber.timing;
+
+import com.threecubed.auber.World;
+
+
+/**
+ * An object that can have tasks scheduled against it on a {@link TimingWheel}. The callback also
+ * acts as the handle used to cancel those tasks, usually it is the entity that owns them.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public interface TimerCallback {
+  /**
+   * Handle a scheduled task firing.
+   *
+   * @param event The event ID the task was scheduled with
+   * @param world The game world
+   * */
+  void onTimer(int event, World world);
+}
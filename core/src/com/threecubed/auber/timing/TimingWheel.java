@@ -0,0 +1,318 @@
+package com.threecubed.auber.timing;
+
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.Pool;
+import com.threecubed.auber.World;
+
+
+/**
+ * A hierarchical timing wheel that schedules tasks in terms of simulation ticks rather than wall
+ * clock time, so that tasks pause along with the simulation. Each level of the wheel has
+ * {@link TimingWheel#SLOTS} slots, with each slot of a level spanning a full rotation of the
+ * level below it. Tasks are placed in the lowest level that can hold them and cascade down as
+ * the wheel turns, meaning that the cost of a tick is constant regardless of how many tasks are
+ * scheduled.
+ * Task records are pooled and each one is linked to its {@link TimerCallback}, allowing every
+ * task belonging to an entity to be cancelled without searching the wheel.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class TimingWheel {
+  private static final int SLOT_BITS = 6;
+  /** The number of slots in each level of the wheel. */
+  public static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 4;
+  /** The furthest into the future, in ticks, that a task can be scheduled. */
+  private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+  private final World world;
+  private final TimedTask[][] slots = new TimedTask[LEVELS][SLOTS];
+  /** The first task belonging to each callback. */
+  private final IdentityMap<TimerCallback, TimedTask> owners = new IdentityMap<>();
+  private final Pool<TimedTask> taskPool = new Pool<TimedTask>() {
+    @Override
+    protected TimedTask newObject() {
+      return new TimedTask();
+    }
+  };
+
+  private long currentTick = 0;
+  private int scheduledTasks = 0;
+
+  /** A single scheduled task, linked into both a wheel slot and its owner's list of tasks. */
+  private static class TimedTask implements Pool.Poolable {
+    TimerCallback callback;
+    int event;
+    long expiry;
+    long interval;
+    /** The level of the wheel the task is in, or -1 if it is not currently in the wheel. */
+    int level = -1;
+    boolean cancelled;
+
+    TimedTask previous;
+    TimedTask next;
+    TimedTask previousOwned;
+    TimedTask nextOwned;
+
+    @Override
+    public void reset() {
+      callback = null;
+      level = -1;
+      cancelled = false;
+      previous = null;
+      next = null;
+      previousOwned = null;
+      nextOwned = null;
+    }
+  }
+
+  /**
+   * Initialise a timing wheel for a given world.
+   *
+   * @param world The world whose tick rate delays are converted with and that is passed to tasks
+   * */
+  public TimingWheel(World world) {
+    this.world = world;
+  }
+
+  /**
+   * Schedule a task to fire once after a given delay.
+   *
+   * @param callback The callback to run, also used as the handle to cancel the task
+   * @param event An ID passed to the callback to identify the task
+   * @param delaySeconds The delay before the task fires, in simulation seconds
+   * */
+  public void schedule(TimerCallback callback, int event, float delaySeconds) {
+    schedule(callback, event, delaySeconds, 0f);
+  }
+
+  /**
+   * Schedule a task to fire after a given delay, and then repeatedly at a given interval until
+   * it is cancelled.
+   *
+   * @param callback The callback to run, also used as the handle to cancel the task
+   * @param event An ID passed to the callback to identify the task
+   * @param delaySeconds The delay before the task first fires, in simulation seconds
+   * @param intervalSeconds The interval to repeat the task at, 0 to only fire once
+   * */
+  public void schedule(TimerCallback callback, int event, float delaySeconds,
+      float intervalSeconds) {
+    TimedTask task = taskPool.obtain();
+    task.callback = callback;
+    task.event = event;
+    task.expiry = currentTick + secondsToTicks(delaySeconds);
+    task.interval = intervalSeconds > 0 ? secondsToTicks(intervalSeconds) : 0;
+
+    TimedTask firstOwned = owners.get(callback);
+    if (firstOwned != null) {
+      firstOwned.previousOwned = task;
+      task.nextOwned = firstOwned;
+    }
+    owners.put(callback, task);
+
+    insert(task);
+    scheduledTasks++;
+  }
+
+  /**
+   * Cancel every task scheduled with the given callback.
+   *
+   * @param callback The callback to cancel the tasks of
+   * */
+  public void cancel(TimerCallback callback) {
+    TimedTask task = owners.remove(callback);
+    while (task != null) {
+      TimedTask nextTask = task.nextOwned;
+      task.previousOwned = null;
+      task.nextOwned = null;
+      release(task);
+      task = nextTask;
+    }
+  }
+
+  /**
+   * Cancel every task scheduled with the given callback and event ID.
+   *
+   * @param callback The callback to cancel the tasks of
+   * @param event The event ID of the tasks to cancel
+   * */
+  public void cancel(TimerCallback callback, int event) {
+    TimedTask task = owners.get(callback);
+    while (task != null) {
+      TimedTask nextTask = task.nextOwned;
+      if (task.event == event) {
+        unlinkOwner(task);
+        release(task);
+      }
+      task = nextTask;
+    }
+  }
+
+  /**
+   * Check whether the given callback has any tasks scheduled.
+   *
+   * @param callback The callback to check
+   * @return Whether any tasks belonging to the callback are yet to fire
+   * */
+  public boolean hasTasks(TimerCallback callback) {
+    return owners.containsKey(callback);
+  }
+
+  /** Cancel every scheduled task. */
+  public void clear() {
+    for (TimedTask[] level : slots) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        TimedTask task = level[slot];
+        while (task != null) {
+          TimedTask nextTask = task.next;
+          taskPool.free(task);
+          task = nextTask;
+        }
+        level[slot] = null;
+      }
+    }
+    owners.clear();
+    scheduledTasks = 0;
+  }
+
+  /** Cancel every scheduled task and count ticks from zero again, as a new wheel would. */
+  public void reset() {
+    clear();
+    currentTick = 0;
+  }
+
+  /**
+   * Advance the wheel by a single tick, firing any tasks that have expired. Should be called
+   * once per simulation tick.
+   * */
+  public void advance() {
+    currentTick++;
+
+    // Whenever a level completes a rotation, move the next slot of the level above down into it
+    for (int level = 1; level < LEVELS; level++) {
+      if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+        break;
+      }
+      int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+      TimedTask task = slots[level][slot];
+      slots[level][slot] = null;
+      while (task != null) {
+        TimedTask nextTask = task.next;
+        task.previous = null;
+        task.next = null;
+        insert(task);
+        task = nextTask;
+      }
+    }
+
+    int slot = (int) (currentTick & SLOT_MASK);
+    TimedTask task;
+    while ((task = slots[0][slot]) != null) {
+      unlinkSlot(task);
+
+      task.callback.onTimer(task.event, world);
+
+      if (task.cancelled) {
+        // The task was cancelled by its own callback, it has already left its owner's list
+        scheduledTasks--;
+        taskPool.free(task);
+      } else if (task.interval > 0) {
+        task.expiry += task.interval;
+        insert(task);
+      } else {
+        unlinkOwner(task);
+        scheduledTasks--;
+        taskPool.free(task);
+      }
+    }
+  }
+
+  public long getCurrentTick() {
+    return currentTick;
+  }
+
+  /**
+   * Get the number of tasks waiting to fire.
+   *
+   * @return The number of scheduled tasks
+   * */
+  public int getScheduledTaskCount() {
+    return scheduledTasks;
+  }
+
+  private long secondsToTicks(float seconds) {
+    long ticks = Math.round(seconds * world.getTickRate());
+    return Math.min(Math.max(ticks, 1), MAX_DELAY);
+  }
+
+  /**
+   * Place a task in the lowest level of the wheel whose span covers its expiry.
+   *
+   * @param task The task to insert
+   * */
+  private void insert(TimedTask task) {
+    long delay = Math.max(task.expiry - currentTick, 0);
+    int level = 0;
+    while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    int slot = (int) ((task.expiry >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+    task.level = level;
+    task.previous = null;
+    task.next = slots[level][slot];
+    if (task.next != null) {
+      task.next.previous = task;
+    }
+    slots[level][slot] = task;
+  }
+
+  private void unlinkSlot(TimedTask task) {
+    if (task.previous != null) {
+      task.previous.next = task.next;
+    } else {
+      int slot = (int) ((task.expiry >>> (SLOT_BITS * task.level)) & SLOT_MASK);
+      slots[task.level][slot] = task.next;
+    }
+    if (task.next != null) {
+      task.next.previous = task.previous;
+    }
+    task.previous = null;
+    task.next = null;
+    task.level = -1;
+  }
+
+  private void unlinkOwner(TimedTask task) {
+    if (task.previousOwned != null) {
+      task.previousOwned.nextOwned = task.nextOwned;
+    } else if (task.nextOwned != null) {
+      owners.put(task.callback, task.nextOwned);
+    } else {
+      owners.remove(task.callback);
+    }
+    if (task.nextOwned != null) {
+      task.nextOwned.previousOwned = task.previousOwned;
+    }
+    task.previousOwned = null;
+    task.nextOwned = null;
+  }
+
+  /**
+   * Remove a cancelled task from the wheel and return it to the pool. A task that is currently
+   * firing is only flagged, and freed once its callback returns.
+   *
+   * @param task The task to release, already removed from its owner's list
+   * */
+  private void release(TimedTask task) {
+    if (task.level == -1) {
+      task.cancelled = true;
+      return;
+    }
+    unlinkSlot(task);
+    scheduledTasks--;
+    taskPool.free(task);
+  }
+}
@@ -0,0 +1,93 @@
+package com.threecubed.auber.timing;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+
+/**
+ * Accumulates the time {@link com.threecubed.auber.World#update()} spends in each of its
+ * subsystems. The world marks the end of each subsystem as it goes, so the cost is a single
+ * clock read per subsystem per tick.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class UpdateProfiler {
+  /** The parts of a world update, in the order they run. */
+  public enum Subsystem {
+    ENTITY_QUEUE,
+    TIMERS,
+    PATH_REQUESTS,
+    SPATIAL_INDEX,
+    NPC_PLANNING,
+    ENTITY_UPDATE,
+    SPAWNING,
+  }
+
+  private final long[] totalNanos = new long[Subsystem.values().length];
+  private long sectionStart;
+  /** The number of ticks profiled. */
+  public long ticks = 0;
+
+  /** Mark the start of a tick. */
+  public void beginTick() {
+    sectionStart = TimeUtils.nanoTime();
+  }
+
+  /**
+   * Mark the end of a subsystem, attributing the time since the previous mark to it.
+   *
+   * @param subsystem The subsystem that has just finished
+   * */
+  public void mark(Subsystem subsystem) {
+    long now = TimeUtils.nanoTime();
+    totalNanos[subsystem.ordinal()] += now - sectionStart;
+    sectionStart = now;
+  }
+
+  /** Mark the end of a tick. */
+  public void endTick() {
+    ticks++;
+  }
+
+  /**
+   * Get the total time spent in a subsystem since the profiler was last reset.
+   *
+   * @param subsystem The subsystem to get the time of
+   * @return The time spent, in nanoseconds
+   * */
+  public long getTotalNanos(Subsystem subsystem) {
+    return totalNanos[subsystem.ordinal()];
+  }
+
+  /**
+   * Get the average time spent in a subsystem each tick.
+   *
+   * @param subsystem The subsystem to get the time of
+   * @return The average time spent per tick, in milliseconds
+   * */
+  public float getAverageMillis(Subsystem subsystem) {
+    return getTotalNanos(subsystem) / 1e6f / Math.max(ticks, 1);
+  }
+
+  /** Clear every total. */
+  public void reset() {
+    for (int i = 0; i < totalNanos.length; i++) {
+      totalNanos[i] = 0;
+    }
+    ticks = 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder output = new StringBuilder();
+    for (Subsystem subsystem : Subsystem.values()) {
+      if (output.length() > 0) {
+        output.append(", ");
+      }
+      output.append(String.format("%s %.3fms", subsystem.name().toLowerCase(),
+          getAverageMillis(subsystem)));
+    }
+    return output.toString();
+  }
+}
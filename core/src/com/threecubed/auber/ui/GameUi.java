@@ -3,21 +3,35 @@ package com.threecubed.auber.ui;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.threecubed.auber.AuberGame;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectFloatMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.SystemRegistry;
 import com.threecubed.auber.World;
-import com.threecubed.auber.entities.Player;
+import com.threecubed.auber.timing.FrameGovernor;
 
 import java.util.ArrayList;
 
 
-public class GameUi {
+/**
+ * Draws the heads-up display over the game. Everything is drawn in a single pass of one batch:
+ * bars are the atlas's white region stretched and tinted, and text is laid out into font caches
+ * that are only rebuilt when the text itself changes, rather than every frame.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class GameUi implements SystemRegistry.Listener, Disposable {
   private static final int CHARGE_METER_WIDTH = 20;
   private static final int CHARGE_METER_MAX_HEIGHT = 100;
   private static final Vector2 CHARGE_METER_POSITION = new Vector2(50f, 50f);
@@ -34,17 +48,36 @@ public class GameUi {
   //private static final Vector2 SPEED_BOOST_DURATION_POSITION = new Vector2(Gdx.graphics.getWidth()/2, 100f);
   private static final int MESSAGE_DURATION = 200;  //Measured in calls of update, not seconds.
 
-  private ShapeRenderer shapeRenderer = new ShapeRenderer();
-
   private Sprite arrowSprite;
+  /** The last angle each system's warning arrow was drawn at. */
+  private ObjectFloatMap<RectangleMapObject> arrowRotations = new ObjectFloatMap<>();
+  /** While the frame governor is degraded, arrows are only re-aimed once every this many frames. */
+  private static final int DEGRADED_ARROW_INTERVAL = 8;
+  /** The colour each system's name is drawn in, kept up to date by the system registry. */
+  private ObjectMap<RectangleMapObject, Color> systemColors = new ObjectMap<>();
   private Color blindedColor = new Color(0f, 0f, 0f, 1f);
 
-  private BitmapFont uiFont = new BitmapFont();
+  private BitmapFont uiFont;
+  /** A white region of the atlas, stretched and tinted to draw bars and overlays. */
+  private TextureRegion whiteRegion;
+
+  /** The labels that never change, laid out once. */
+  private BitmapFontCache labelCache;
+  private BitmapFontCache healthWarningsCache;
+  private BitmapFontCache systemNamesCache;
+  private BitmapFontCache messagesCache;
+  /** The player status effects the health warnings were last laid out for, or -1 if never. */
+  private int laidOutHealthWarnings = -1;
+  private boolean systemNamesDirty = true;
+  /** The number of systems the names were last laid out for. */
+  private int laidOutSystemCount = -1;
+  private boolean messagesDirty = true;
 
   private ArrayList<Message> messages = new ArrayList<>();
 
-  public GameUi(AuberGame game) {
-    arrowSprite = game.atlas.createSprite("arrow2");
+  public GameUi(RegionCache regions) {
+    arrowSprite = regions.createSprite("arrow2");
+    whiteRegion = regions.getRegion("white");
   }
 
   /**
@@ -54,20 +87,52 @@ public class GameUi {
    * @param screenBatch The batch to draw the UI to
    * */
   public void render(World world, SpriteBatch screenBatch) {
+    // Created on first render so that a world can be simulated without a GL context
+    if (uiFont == null) {
+      createResources();
+    }
+
+    screenBatch.begin();
     if (world.player.blinded) {
-      shapeRenderer.begin(ShapeType.Filled);
-      shapeRenderer.setColor(blindedColor);
-      shapeRenderer.rect(0f, 0f, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-      shapeRenderer.setColor(Color.WHITE);
-      shapeRenderer.end();
+      drawRectangle(screenBatch, blindedColor, 0f, 0f, Gdx.graphics.getWidth(),
+          Gdx.graphics.getHeight());
     }
 
+    labelCache.draw(screenBatch);
     drawChargeMeter(world, screenBatch);
     drawHealthbar(world, screenBatch);
     drawHealthWarnings(world, screenBatch);
     drawSystemWarnings(world, screenBatch);
     drawMessages(world, screenBatch);
     //displaySpeedBoostDuration(world, screenBatch);
+    screenBatch.end();
+  }
+
+  private void createResources() {
+    uiFont = new BitmapFont();
+
+    labelCache = new BitmapFontCache(uiFont);
+    labelCache.addText("Teleporter Ray Charge", CHARGE_METER_POSITION.x,
+        CHARGE_METER_POSITION.y + (CHARGE_METER_MAX_HEIGHT / 2));
+    labelCache.addText("Health", HEALTHBAR_POSITION.x,
+        HEALTHBAR_POSITION.y + (HEALTHBAR_MAX_HEIGHT / 2));
+
+    healthWarningsCache = new BitmapFontCache(uiFont);
+    systemNamesCache = new BitmapFontCache(uiFont);
+    messagesCache = new BitmapFontCache(uiFont);
+  }
+
+  /**
+   * Draw a solid rectangle by stretching the white region over it.
+   *
+   * @param screenBatch The batch to draw to, which must already have begun
+   * @param color The colour of the rectangle
+   * */
+  private void drawRectangle(SpriteBatch screenBatch, Color color, float x, float y, float width,
+      float height) {
+    screenBatch.setColor(color);
+    screenBatch.draw(whiteRegion, x, y, width, height);
+    screenBatch.setColor(Color.WHITE);
   }
 
   /**
@@ -77,58 +142,44 @@ public class GameUi {
    * @param screenBatch The batch to draw to
    * */
   private void drawChargeMeter(World world, SpriteBatch screenBatch) {
-    screenBatch.begin();
-    uiFont.draw(screenBatch, "Teleporter Ray Charge",
-        CHARGE_METER_POSITION.x,
-        CHARGE_METER_POSITION.y + (CHARGE_METER_MAX_HEIGHT / 2));
-    screenBatch.end();
-
     float chargeMeterHeight = world.auberTeleporterCharge * CHARGE_METER_MAX_HEIGHT;
-    
+
     // Make the charge meter green if weapon is charged
+    Color chargeMeterColor;
     if (chargeMeterHeight > CHARGE_METER_MAX_HEIGHT * 0.95f) {
-      shapeRenderer.setColor(Color.GREEN);
+      chargeMeterColor = Color.GREEN;
     } else {
-      shapeRenderer.setColor(Color.RED);
+      chargeMeterColor = Color.RED;
     }
 
-    shapeRenderer.begin(ShapeType.Filled);
-    shapeRenderer.rect(CHARGE_METER_POSITION.x + 160f, CHARGE_METER_POSITION.y, CHARGE_METER_WIDTH,
-        chargeMeterHeight);
+    drawRectangle(screenBatch, chargeMeterColor, CHARGE_METER_POSITION.x + 160f,
+        CHARGE_METER_POSITION.y, CHARGE_METER_WIDTH, chargeMeterHeight);
     // Draw background (fill remaining space)
-    shapeRenderer.setColor(Color.DARK_GRAY);
-    shapeRenderer.rect(CHARGE_METER_POSITION.x + 160f, CHARGE_METER_POSITION.y+chargeMeterHeight, CHARGE_METER_WIDTH,
-            CHARGE_METER_MAX_HEIGHT-chargeMeterHeight);
-    shapeRenderer.end();
+    drawRectangle(screenBatch, Color.DARK_GRAY, CHARGE_METER_POSITION.x + 160f,
+        CHARGE_METER_POSITION.y + chargeMeterHeight, CHARGE_METER_WIDTH,
+        CHARGE_METER_MAX_HEIGHT - chargeMeterHeight);
   }
 
   private void drawHealthbar(World world, SpriteBatch screenBatch) {
-    screenBatch.begin();
-    uiFont.draw(screenBatch, "Health",
-        HEALTHBAR_POSITION.x,
-        HEALTHBAR_POSITION.y + (HEALTHBAR_MAX_HEIGHT / 2));
-    screenBatch.end();
-
     float healthbarHeight = world.player.health * HEALTHBAR_MAX_HEIGHT;
 
     // Set the healthbar colour based on amount of health
+    Color healthbarColor;
     if (healthbarHeight > HEALTHBAR_MAX_HEIGHT * 0.8f) {
-      shapeRenderer.setColor(Color.GREEN);
+      healthbarColor = Color.GREEN;
     } else if (healthbarHeight > HEALTHBAR_MAX_HEIGHT * 0.5) {
-      shapeRenderer.setColor(Color.ORANGE);
+      healthbarColor = Color.ORANGE;
     } else {
-      shapeRenderer.setColor(Color.RED);
+      healthbarColor = Color.RED;
     }
 
-    shapeRenderer.begin(ShapeType.Filled);
     // Draw the bar
-    shapeRenderer.rect(HEALTHBAR_POSITION.x + 60f, HEALTHBAR_POSITION.y, HEALTHBAR_WIDTH,
-        healthbarHeight);
+    drawRectangle(screenBatch, healthbarColor, HEALTHBAR_POSITION.x + 60f, HEALTHBAR_POSITION.y,
+        HEALTHBAR_WIDTH, healthbarHeight);
     // Draw background (fill remaining space)
-    shapeRenderer.setColor(Color.DARK_GRAY);
-    shapeRenderer.rect(HEALTHBAR_POSITION.x + 60f, HEALTHBAR_POSITION.y+healthbarHeight, HEALTHBAR_WIDTH,
-        HEALTHBAR_MAX_HEIGHT-healthbarHeight);
-    shapeRenderer.end();
+    drawRectangle(screenBatch, Color.DARK_GRAY, HEALTHBAR_POSITION.x + 60f,
+        HEALTHBAR_POSITION.y + healthbarHeight, HEALTHBAR_WIDTH,
+        HEALTHBAR_MAX_HEIGHT - healthbarHeight);
   }
 
   /**
@@ -138,21 +189,26 @@ public class GameUi {
    * @param screenBatch The batch to draw to
    * */
   private void drawHealthWarnings(World world, SpriteBatch screenBatch) {
-    screenBatch.begin();
-    uiFont.setColor(Color.RED);
-    if (world.player.confused) {
-      uiFont.draw(screenBatch, "CONFUSED", HEALTH_WARNINGS_POSITION.x, HEALTH_WARNINGS_POSITION.y);
-    }
-    if (world.player.slowed) {
-      uiFont.draw(screenBatch, "SLOWED", HEALTH_WARNINGS_POSITION.x,
-          HEALTH_WARNINGS_POSITION.y + 20f);
-    }
-    if (world.player.blinded) {
-      uiFont.draw(screenBatch, "BLINDED", HEALTH_WARNINGS_POSITION.x,
-          HEALTH_WARNINGS_POSITION.y + 40f);
+    int healthWarnings = (world.player.confused ? 1 : 0) | (world.player.slowed ? 2 : 0)
+        | (world.player.blinded ? 4 : 0);
+    if (healthWarnings != laidOutHealthWarnings) {
+      healthWarningsCache.clear();
+      healthWarningsCache.setColor(Color.RED);
+      if (world.player.confused) {
+        healthWarningsCache.addText("CONFUSED", HEALTH_WARNINGS_POSITION.x,
+            HEALTH_WARNINGS_POSITION.y);
+      }
+      if (world.player.slowed) {
+        healthWarningsCache.addText("SLOWED", HEALTH_WARNINGS_POSITION.x,
+            HEALTH_WARNINGS_POSITION.y + 20f);
+      }
+      if (world.player.blinded) {
+        healthWarningsCache.addText("BLINDED", HEALTH_WARNINGS_POSITION.x,
+            HEALTH_WARNINGS_POSITION.y + 40f);
+      }
+      laidOutHealthWarnings = healthWarnings;
     }
-    uiFont.setColor(Color.WHITE);
-    screenBatch.end();
+    healthWarningsCache.draw(screenBatch);
   }
 
   /**
@@ -162,40 +218,71 @@ public class GameUi {
    * @param screenBatch The batch to draw to
    * */
   private void drawSystemWarnings(World world, SpriteBatch screenBatch) {
-    screenBatch.begin();
     int offset = 0;
     for (RectangleMapObject system : world.systems) {
       Rectangle systemRectangle = system.getRectangle();
-      Vector2 systemAngleVector = new Vector2(systemRectangle.getX() - world.player.position.x,
-                                              systemRectangle.getY() - world.player.position.y);
+      // Arrows are purely cosmetic, so keep their old angle for a few frames when under load
+      float arrowRotation;
+      if (world.governor.isDegraded(FrameGovernor.SKIP_ARROW_ROTATION_LEVEL)
+          && world.governor.frames % DEGRADED_ARROW_INTERVAL != 0
+          && arrowRotations.containsKey(system)) {
+        arrowRotation = arrowRotations.get(system, 0f);
+        world.governor.skippedArrowRotations++;
+      } else {
+        float systemAngle = (float) Math.atan2(systemRectangle.getY() - world.player.position.y,
+            systemRectangle.getX() - world.player.position.x) * MathUtils.radiansToDegrees;
+        if (systemAngle < 0) {
+          systemAngle += 360f;
+        }
+        arrowRotation = systemAngle - 90f;
+        arrowRotations.put(system, arrowRotation);
+      }
 
       arrowSprite.setPosition(SYSTEM_WARNINGS_POSITION.x - 20f, SYSTEM_WARNINGS_POSITION.y
           + offset - 10f);
-      arrowSprite.setRotation(systemAngleVector.angleDeg() - 90f);
+      arrowSprite.setRotation(arrowRotation);
       arrowSprite.draw(screenBatch);
+      offset += 25f;
+    }
 
-      String systemName = system.getName();
-      // No need for DESTROYED case as when system destroyed, removed from systems list
-      switch (world.getSystemState(system)) {
-        case WORKING:
-          uiFont.setColor(Color.GREEN);
-          break;
-        case ATTACKED:
-          uiFont.setColor(Color.RED);
-          break;
-        default:
-          break;
+    // Names only move or change colour when a system changes state or is destroyed
+    if (systemNamesDirty || laidOutSystemCount != world.systems.size()) {
+      systemNamesCache.clear();
+      offset = 0;
+      for (RectangleMapObject system : world.systems) {
+        Color systemColor = systemColors.get(system);
+        if (systemColor == null) {
+          systemColor = getSystemColor(world.getSystemState(system));
+          systemColors.put(system, systemColor);
+        }
+        systemNamesCache.setColor(systemColor);
+        systemNamesCache.addText(system.getName(), SYSTEM_WARNINGS_POSITION.x,
+            SYSTEM_WARNINGS_POSITION.y + offset);
+        offset += 25f;
       }
+      systemNamesDirty = false;
+      laidOutSystemCount = world.systems.size();
+    }
+    systemNamesCache.draw(screenBatch);
+  }
 
-      uiFont.draw(screenBatch, systemName, SYSTEM_WARNINGS_POSITION.x,
-          SYSTEM_WARNINGS_POSITION.y + offset);
-      offset += 25f;
 
-    }
-    uiFont.setColor(Color.WHITE);
-    screenBatch.end();
+  @Override
+  public void systemStateChanged(int id, RectangleMapObject system, World.SystemStates oldState,
+      World.SystemStates newState) {
+    systemColors.put(system, getSystemColor(newState));
+    systemNamesDirty = true;
   }
 
+  private Color getSystemColor(World.SystemStates state) {
+    // No need for DESTROYED case as when system destroyed, removed from systems list
+    switch (state) {
+      case ATTACKED:
+        return Color.RED;
+      default:
+        return Color.GREEN;
+    }
+  }
 
   /**
    * Represents a message to be displayed in the message system
@@ -219,24 +306,40 @@ public class GameUi {
    * @param screenBatch The batch to draw to
    */
   private void drawMessages(World world, SpriteBatch screenBatch){
-    screenBatch.begin();
-    uiFont.setColor(Color.WHITE);
-    int offset = 0;
-
     int i = 0;
     while (i < messages.size()){
       Message message = messages.get(i);
       if (message.remainingTime < 0){
         messages.remove(i);
+        messagesDirty = true;
       } else {
         message.remainingTime -= 1;
-        uiFont.draw(screenBatch, message.text, MESSAGES_POSITION.x,
-                MESSAGES_POSITION.y + offset);
-        offset += 25f;
         i++;
       }
     }
-    screenBatch.end();
+
+    if (messagesDirty) {
+      messagesCache.clear();
+      int offset = 0;
+      for (Message message : messages) {
+        messagesCache.addText(message.text, MESSAGES_POSITION.x, MESSAGES_POSITION.y + offset);
+        offset += 25f;
+      }
+      messagesDirty = false;
+    }
+    messagesCache.draw(screenBatch);
+  }
+
+  /**
+   * Clear every message and cached layout left over from a previous game. The font and caches
+   * themselves are kept.
+   * */
+  public void reset() {
+    messages.clear();
+    messagesDirty = true;
+    arrowRotations.clear();
+    systemNamesDirty = true;
+    laidOutHealthWarnings = -1;
   }
 
   /**
@@ -247,5 +350,13 @@ public class GameUi {
   public void queueMessage(String text){
     Message message = new Message(text, MESSAGE_DURATION);
     messages.add(message);
+    messagesDirty = true;
+  }
+
+  @Override
+  public void dispose() {
+    if (uiFont != null) {
+      uiFont.dispose();
+    }
   }
 }
@@ -0,0 +1,142 @@
+package com.threecubed.auber.desktop;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.threecubed.auber.RegionCache;
+import com.threecubed.auber.World;
+import com.threecubed.auber.entities.NpcUpdater;
+import com.threecubed.auber.simulation.Simulation;
+import com.threecubed.auber.simulation.SimulationRunner;
+import com.threecubed.auber.simulation.StressTest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Simulates games of Auber without a window or GPU, for soak and performance testing.
+ * Usage: {@code HeadlessLauncher [games] [difficulty|ALL] [maxTicks] [demo] [threads] [seed]}
+ * or, to stress test a single world,
+ * {@code HeadlessLauncher stress [civilians] [infiltrators] [mapScale] [ticks] [seed]}
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class HeadlessLauncher {
+  /** The default number of ticks a game may run for, 30 minutes at the reference tick rate. */
+  private static final long DEFAULT_MAX_TICKS = 30 * 60 * 60;
+
+  public static void main(final String[] arg) {
+    if (arg.length > 0 && arg[0].equalsIgnoreCase("stress")) {
+      runStressTest(arg);
+      return;
+    }
+    final int games = arg.length > 0 ? Integer.parseInt(arg[0]) : 1;
+    final String difficultyName = arg.length > 1 ? arg[1].toUpperCase() : "HARD";
+    final long maxTicks = arg.length > 2 ? Long.parseLong(arg[2]) : DEFAULT_MAX_TICKS;
+    final boolean demoMode = arg.length > 3 && Boolean.parseBoolean(arg[3]);
+    final int threads = arg.length > 4
+        ? Integer.parseInt(arg[4]) : Runtime.getRuntime().availableProcessors();
+    final long seed = arg.length > 5 ? Long.parseLong(arg[5]) : 0L;
+
+    HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+    // Everything is run from create(), there is no need for a render loop
+    config.renderInterval = -1;
+
+    new HeadlessApplication(new ApplicationAdapter() {
+      @Override
+      public void create() {
+        installStubGl();
+        TextureAtlas atlas = new TextureAtlas("auber.atlas");
+        // Load the shared map before any worker threads touch it
+        World.getBaseMap();
+        SimulationRunner runner = new SimulationRunner(new RegionCache(atlas), threads);
+
+        Map<World.Difficulty, List<Simulation.Result>> results;
+        if (difficultyName.equals("ALL")) {
+          results = runner.sweep(games, demoMode, maxTicks, seed);
+        } else {
+          World.Difficulty difficulty = World.Difficulty.valueOf(difficultyName);
+          results = new EnumMap<>(World.Difficulty.class);
+          results.put(difficulty, runner.run(games, difficulty, demoMode, maxTicks, seed));
+        }
+        runner.shutdown();
+        NpcUpdater.shutdown();
+
+        for (Map.Entry<World.Difficulty, List<Simulation.Result>> entry : results.entrySet()) {
+          List<Simulation.Result> difficultyResults = entry.getValue();
+          for (int i = 0; i < difficultyResults.size(); i++) {
+            Gdx.app.log("Simulation " + (seed + i), difficultyResults.get(i).toString());
+          }
+          Gdx.app.log(entry.getKey().toString(), SimulationRunner.summarise(difficultyResults));
+        }
+        atlas.dispose();
+        Gdx.app.exit();
+      }
+    }, config);
+  }
+
+  /**
+   * Run a single stress test with the given arguments.
+   *
+   * @param arg The command line arguments, starting with "stress"
+   * */
+  private static void runStressTest(final String[] arg) {
+    final int civilians = arg.length > 1 ? Integer.parseInt(arg[1]) : 10000;
+    final int infiltrators = arg.length > 2 ? Integer.parseInt(arg[2]) : 1000;
+    final int mapScale = arg.length > 3 ? Integer.parseInt(arg[3]) : 4;
+    final long ticks = arg.length > 4 ? Long.parseLong(arg[4]) : 600;
+    final long seed = arg.length > 5 ? Long.parseLong(arg[5]) : 0L;
+
+    HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+    config.renderInterval = -1;
+
+    new HeadlessApplication(new ApplicationAdapter() {
+      @Override
+      public void create() {
+        installStubGl();
+        TextureAtlas atlas = new TextureAtlas("auber.atlas");
+        StressTest stressTest = new StressTest(new RegionCache(atlas), civilians, infiltrators,
+            mapScale, seed);
+        Gdx.app.log("StressTest", stressTest.run(ticks).toString());
+        NpcUpdater.shutdown();
+        atlas.dispose();
+        Gdx.app.exit();
+      }
+    }, config);
+  }
+
+  /**
+   * Install a GL implementation that does nothing. Textures are still decoded so that sprites
+   * have the correct sizes, but nothing is ever uploaded to a GPU.
+   * */
+  static void installStubGl() {
+    GL20 stubGl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(),
+        new Class<?>[] {GL20.class}, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            Class<?> returnType = method.getReturnType();
+            if (returnType == int.class) {
+              return 0;
+            } else if (returnType == boolean.class) {
+              return false;
+            } else if (returnType == float.class) {
+              return 0f;
+            } else if (returnType == String.class) {
+              return "";
+            }
+            return null;
+          }
+        });
+    Gdx.gl = stubGl;
+    Gdx.gl20 = stubGl;
+  }
+}
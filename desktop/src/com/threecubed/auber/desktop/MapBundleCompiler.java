@@ -0,0 +1,58 @@
+package com.threecubed.auber.desktop;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.threecubed.auber.MapBundle;
+import com.threecubed.auber.World;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Compiles a TMX map into a {@link MapBundle}, run by the build whenever the map changes.
+ * Usage: {@code MapBundleCompiler [map] [bundle]}, with the map relative to the assets directory
+ * and the bundle relative to the working directory, or absolute.
+ *
+ * @author Daniel O'Brien
+ * @version 1.0
+ * @since 1.0
+ * */
+public class MapBundleCompiler {
+  public static void main(final String[] arg) {
+    final String mapFile = arg.length > 0 ? arg[0] : "map.tmx";
+    final String bundleFile = arg.length > 1 ? arg[1] : MapBundle.FILE;
+
+    HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+    config.renderInterval = -1;
+
+    new HeadlessApplication(new ApplicationAdapter() {
+      @Override
+      public void create() {
+        // Loading the map loads its tileset's textures, which needs some kind of GL
+        HeadlessLauncher.installStubGl();
+        TiledMap map = new TmxMapLoader().load(mapFile);
+        // System tiles are decoded through World.Tiles, whose cells come from the base map's
+        // tileset, so share this map rather than letting it load the map a second time
+        World.setBaseMap(map);
+        MapBundle bundle = MapBundle.compile(map);
+        try (OutputStream output = new FileHandle(new File(bundleFile)).write(false)) {
+          bundle.write(output);
+        } catch (IOException e) {
+          Gdx.app.error("MapBundleCompiler", "Failed to write " + bundleFile, e);
+          System.exit(1);
+        }
+        Gdx.app.log("MapBundleCompiler", "Compiled " + mapFile + " to " + bundleFile + ", "
+            + bundle.systemObjects.length + " systems, " + bundle.spawnTiles.length
+            + " spawn tiles");
+        map.dispose();
+        Gdx.app.exit();
+      }
+    }, config);
+  }
+}